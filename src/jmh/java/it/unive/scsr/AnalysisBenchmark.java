@@ -0,0 +1,139 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.dataflow.DefiniteDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleDataflowDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.util.file.FileManager;
+import it.unive.scsr.checkers.DefiniteTaintSolutionChecker;
+import it.unive.scsr.checkers.TaintChecker;
+
+/**
+ * End-to-end benchmarks running LiSA over each of the programs in
+ * {@code inputs/}, with the analysis the program has been written for. No
+ * output is produced, so that only the analysis is measured, and the
+ * temporary working directory is deleted at the end of each trial. Programs are
+ * parsed before each run, outside of the measured time, as LiSA modifies them
+ * while analyzing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AnalysisBenchmark {
+
+	@Param({ "available-expressions", "cp-eval", "cprop", "definite-taint-eval", "intervals", "parity-eval",
+			"pentagons", "reaching-definitions", "signs", "taint", "upperbounds" })
+	public String input;
+
+	private Program program;
+
+	private LiSAConfiguration conf;
+
+	@Setup(Level.Trial)
+	public void configure() throws Exception {
+		conf = new DefaultConfiguration();
+		conf.workdir = Files.createTempDirectory("lisa-bench").toString();
+		conf.analysisGraphs = GraphType.NONE;
+		setDomain(conf, input);
+
+		if (input.equals("taint") || input.equals("definite-taint-eval")) {
+			conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+			conf.semanticChecks.add(input.equals("taint") ? new TaintChecker() : new DefiniteTaintSolutionChecker());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void clean() throws IOException {
+		FileManager.forceDeleteFolder(conf.workdir);
+	}
+
+	@Setup(Level.Invocation)
+	public void parse() throws Exception {
+		program = IMPFrontend.processFile("inputs/" + input + ".imp");
+		if (input.equals("taint") || input.equals("definite-taint-eval"))
+			TaintAnnotations.load(program, TaintChecker.SINK_ANNOTATION);
+	}
+
+	@Benchmark
+	public void run() throws Exception {
+		new LiSA(conf).run(program);
+	}
+
+	private static void setDomain(
+			LiSAConfiguration conf,
+			String input) {
+		switch (input) {
+		case "available-expressions":
+			setDomain(conf, new DefiniteDataflowDomain<>(new AvailableExpressions()));
+			break;
+		case "cp-eval":
+		case "cprop":
+			setDomain(conf, new DefiniteDataflowDomain<>(new CPropSolution()));
+			break;
+		case "definite-taint-eval":
+			setDomain(conf, new ValueEnvironment<>(new DefiniteTaintSolution()));
+			break;
+		case "intervals":
+			setDomain(conf, new ValueEnvironment<>(new Intervals()));
+			break;
+		case "parity-eval":
+			setDomain(conf, new ValueEnvironment<>(new ParitySolution()));
+			break;
+		case "pentagons":
+			setDomain(conf, new Pentagons());
+			break;
+		case "reaching-definitions":
+			setDomain(conf, new PossibleDataflowDomain<>(new ReachingDefinitions()));
+			break;
+		case "signs":
+			setDomain(conf, new ValueEnvironment<>(new Signs()));
+			break;
+		case "taint":
+			setDomain(conf, new ValueEnvironment<>(new Taint()));
+			break;
+		case "upperbounds":
+			setDomain(conf, new ValueEnvironment<>(new UpperBounds(true)));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown input: " + input);
+		}
+	}
+
+	private static <V extends ValueDomain<V>> void setDomain(
+			LiSAConfiguration conf,
+			V domain) {
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				domain,
+				DefaultConfiguration.defaultTypeDomain());
+	}
+}
@@ -0,0 +1,173 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.type.Int32Type;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+
+/**
+ * Benchmarks of the lattice operations of the non-relational domains, on
+ * environments mapping {@link #size} variables to random values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NonRelationalDomainsBenchmark {
+
+	@Param({ "intervals", "signs", "upperbounds", "taint", "definite-taint" })
+	public String domain;
+
+	@Param({ "10", "100", "1000" })
+	public int size;
+
+	private Environments<?> environments;
+
+	@Setup
+	public void setup() throws ParsingException, SemanticException {
+		Random random = new Random(42);
+		List<Identifier> ids = new ArrayList<>();
+		for (int i = 0; i < size; i++)
+			ids.add(new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE));
+		TypedProgramPoint point = TypedProgramPoint.of(ids);
+
+		switch (domain) {
+		case "intervals":
+			environments = new Environments<>(new Intervals(), ids, point, random, RandomValues::interval);
+			break;
+		case "signs":
+			environments = new Environments<>(new Signs(), ids, point, random, r -> new Signs(r.nextInt(3) - 1));
+			break;
+		case "upperbounds":
+			environments = new Environments<>(new UpperBounds(true), ids, point, random, r -> RandomValues.bounds(r, ids, new UpperBounds(true)));
+			break;
+		case "taint":
+			Taint taint = new Taint();
+			environments = new Environments<>(taint, ids, point, random,
+					r -> r.nextBoolean() ? taint.tainted() : taint.clean());
+			break;
+		case "definite-taint":
+			DefiniteTaintSolution definite = new DefiniteTaintSolution();
+			environments = new Environments<>(definite, ids, point, random,
+					r -> r.nextInt(3) == 0 ? definite.top() : r.nextBoolean() ? definite.tainted() : definite.clean());
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown domain: " + domain);
+		}
+	}
+
+	@Benchmark
+	public Object lub() throws SemanticException {
+		return environments.lub();
+	}
+
+	@Benchmark
+	public Object glb() throws SemanticException {
+		return environments.glb();
+	}
+
+	@Benchmark
+	public Object widening() throws SemanticException {
+		return environments.widening();
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return environments.lessOrEqual();
+	}
+
+	@Benchmark
+	public Object assign() throws SemanticException {
+		return environments.assign();
+	}
+
+	/**
+	 * Two random environments of the same domain, their lub, and an
+	 * assignment {@code x0 = x1 + x2} to execute on the first one.
+	 *
+	 * @param <T> the type of values
+	 */
+	private static class Environments<T extends NonRelationalValueDomain<T>> {
+
+		private final ValueEnvironment<T> first;
+
+		private final ValueEnvironment<T> second;
+
+		private final ValueEnvironment<T> joined;
+
+		private final Identifier target;
+
+		private final ValueExpression expression;
+
+		private final TypedProgramPoint point;
+
+		private Environments(
+				T domain,
+				List<Identifier> ids,
+				TypedProgramPoint point,
+				Random random,
+				Function<Random, T> values)
+				throws SemanticException {
+			ValueEnvironment<T> first = new ValueEnvironment<>(domain);
+			ValueEnvironment<T> second = new ValueEnvironment<>(domain);
+			for (Identifier id : ids) {
+				first = first.putState(id, values.apply(random));
+				second = second.putState(id, values.apply(random));
+			}
+			this.first = first;
+			this.second = second;
+			this.joined = first.lub(second);
+			this.target = ids.get(0);
+			this.expression = new BinaryExpression(Int32Type.INSTANCE, ids.get(1 % ids.size()),
+					ids.get(2 % ids.size()), NumericNonOverflowingAdd.INSTANCE, SyntheticLocation.INSTANCE);
+			this.point = point;
+		}
+
+		private ValueEnvironment<T> lub() throws SemanticException {
+			return first.lub(second);
+		}
+
+		private ValueEnvironment<T> glb() throws SemanticException {
+			return first.glb(second);
+		}
+
+		private ValueEnvironment<T> widening() throws SemanticException {
+			return first.widening(second);
+		}
+
+		private boolean lessOrEqual() throws SemanticException {
+			return first.lessOrEqual(joined);
+		}
+
+		private ValueEnvironment<T> assign() throws SemanticException {
+			return first.assign(target, expression, point.pp, point.oracle);
+		}
+	}
+}
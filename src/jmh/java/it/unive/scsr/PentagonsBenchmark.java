@@ -0,0 +1,112 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.type.Int32Type;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+
+/**
+ * Benchmarks of the lattice operations of the implementations of
+ * {@link Pentagons}, on pentagons relating {@link #size} variables. The
+ * {@code closure} benchmark measures the closure of a state that is not
+ * closed, that is the step following most operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PentagonsBenchmark {
+
+	@Param({ "sets", "bitsets", "packed" })
+	public String implementation;
+
+	@Param({ "10", "100", "1000" })
+	public int size;
+
+	private Pentagons first, second, joined;
+
+	private PackedPentagons packedFirst, packedSecond, packedJoined;
+
+	private Identifier target;
+
+	private ValueExpression expression;
+
+	private TypedProgramPoint point;
+
+	@Setup
+	public void setup() throws ParsingException, SemanticException {
+		Random random = new Random(42);
+		List<Identifier> ids = new ArrayList<>();
+		for (int i = 0; i < size; i++)
+			ids.add(new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE));
+
+		// bitsets are only used by the elements built through a table-backed
+		// one, and both states must share the table
+		UpperBounds lattice = implementation.equals("bitsets") ? new UpperBounds(new IdentifierTable())
+				: new UpperBounds(true);
+		first = RandomValues.pentagon(random, ids, lattice);
+		second = RandomValues.pentagon(random, ids, lattice);
+		joined = first.lub(second);
+		if (implementation.equals("packed")) {
+			PackedPentagons packed = new PackedPentagons();
+			packedFirst = packed.pack(first);
+			packedSecond = packed.pack(second);
+			packedJoined = packedFirst.lub(packedSecond);
+		}
+
+		target = ids.get(0);
+		expression = new BinaryExpression(Int32Type.INSTANCE, ids.get(1 % size), ids.get(2 % size),
+				NumericNonOverflowingAdd.INSTANCE, SyntheticLocation.INSTANCE);
+		point = TypedProgramPoint.of(ids);
+	}
+
+	@Benchmark
+	public Object lub() throws SemanticException {
+		return packedFirst != null ? packedFirst.lub(packedSecond) : first.lub(second);
+	}
+
+	@Benchmark
+	public Object widening() throws SemanticException {
+		return packedFirst != null ? packedFirst.widening(packedSecond) : first.widening(second);
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return packedFirst != null ? packedFirst.lessOrEqual(packedJoined) : first.lessOrEqual(joined);
+	}
+
+	@Benchmark
+	public Object assign() throws SemanticException {
+		return packedFirst != null ? packedFirst.assign(target, expression, point.pp, point.oracle)
+				: first.assign(target, expression, point.pp, point.oracle);
+	}
+
+	@Benchmark
+	public Object closure() throws SemanticException {
+		return packedFirst != null ? packedFirst.closure() : first.closure();
+	}
+}
@@ -0,0 +1,112 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.util.file.FileManager;
+import it.unive.scsr.checkers.TaintChecker;
+
+/**
+ * Benchmarks running LiSA over programs generated by {@link ImpGenerator},
+ * to chart how analyses scale with the number of methods and locals and with
+ * the depth of loops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScalingBenchmark {
+
+	@Param({ "intervals", "pentagons", "taint" })
+	public String analysis;
+
+	@Param({ "10", "100" })
+	public int methods;
+
+	@Param({ "5", "50" })
+	public int locals;
+
+	@Param({ "1", "3" })
+	public int loopDepth;
+
+	private ImpGenerator generator;
+
+	private Program program;
+
+	private LiSAConfiguration conf;
+
+	@Setup(Level.Trial)
+	public void configure() throws Exception {
+		generator = new ImpGenerator().methods(methods).locals(locals).statements(2 * locals).loopDepth(loopDepth);
+		conf = new DefaultConfiguration();
+		conf.workdir = Files.createTempDirectory("lisa-bench").toString();
+		conf.analysisGraphs = GraphType.NONE;
+		switch (analysis) {
+		case "intervals":
+			setDomain(conf, new ValueEnvironment<>(new Intervals()));
+			break;
+		case "pentagons":
+			setDomain(conf, new Pentagons());
+			break;
+		case "taint":
+			setDomain(conf, new ValueEnvironment<>(new Taint()));
+			conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+			conf.semanticChecks.add(new TaintChecker());
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown analysis: " + analysis);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void clean() throws IOException {
+		FileManager.forceDeleteFolder(conf.workdir);
+	}
+
+	@Setup(Level.Invocation)
+	public void generate() throws Exception {
+		program = generator.parse();
+		if (analysis.equals("taint"))
+			TaintAnnotations.load(program, TaintChecker.SINK_ANNOTATION);
+	}
+
+	@Benchmark
+	public void run() throws Exception {
+		new LiSA(conf).run(program);
+	}
+
+	private static <V extends ValueDomain<V>> void setDomain(
+			LiSAConfiguration conf,
+			V domain) {
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				domain,
+				DefaultConfiguration.defaultTypeDomain());
+	}
+}
@@ -0,0 +1,83 @@
+package it.unive.scsr;
+
+import java.util.List;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.lattices.ExpressionSet;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.type.Int32Type;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * A program point of a parsed program, together with an oracle knowing the
+ * runtime types of a set of identifiers, to be passed to the semantic
+ * operations of a domain outside of an analysis. Domains use the oracle to
+ * decide whether they can process an expression (e.g., in
+ * {@code Environment.assign}), so operations invoked without it would either
+ * fail or return early.
+ */
+final class TypedProgramPoint {
+
+	/**
+	 * The program point.
+	 */
+	final ProgramPoint pp;
+
+	/**
+	 * The oracle, that is, an abstract state whose type environment maps
+	 * each identifier to {@code int32}.
+	 */
+	final SemanticOracle oracle;
+
+	private TypedProgramPoint(
+			ProgramPoint pp,
+			SemanticOracle oracle) {
+		this.pp = pp;
+		this.oracle = oracle;
+	}
+
+	/**
+	 * Builds a program point of {@code inputs/intervals.imp}, and an oracle
+	 * knowing the given identifiers as integer variables, as if they had
+	 * been assigned an integer constant.
+	 *
+	 * @param ids the identifiers
+	 *
+	 * @return the program point and the oracle
+	 *
+	 * @throws ParsingException  if the program cannot be parsed
+	 * @throws SemanticException if the identifiers cannot be typed
+	 */
+	static TypedProgramPoint of(
+			List<Identifier> ids)
+			throws ParsingException,
+			SemanticException {
+		Program program = IMPFrontend.processFile("inputs/intervals.imp");
+		ProgramPoint pp = program.getAllCFGs().iterator().next().getNodes().iterator().next();
+
+		AnalysisState<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>,
+				TypeEnvironment<InferredTypes>>> state = new AnalysisState<>(
+						DefaultConfiguration.simpleState(
+								new PointBasedHeap(),
+								new ValueEnvironment<>(new Intervals()),
+								DefaultConfiguration.defaultTypeDomain()),
+						new ExpressionSet());
+		Constant zero = new Constant(Int32Type.INSTANCE, 0, SyntheticLocation.INSTANCE);
+		for (Identifier id : ids)
+			state = state.assign(id, zero, pp);
+		return new TypedProgramPoint(pp, state.getState());
+	}
+}
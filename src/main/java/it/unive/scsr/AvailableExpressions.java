@@ -1,6 +1,7 @@
 package it.unive.scsr;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 
 import it.unive.lisa.analysis.ScopeToken;
@@ -42,6 +43,12 @@ public class AvailableExpressions
 	 */
 	private final ValueExpression expression;
 
+	/**
+	 * The variables appearing in the expression, computed once since they are
+	 * needed at every assignment.
+	 */
+	private final Collection<Identifier> variables;
+
 	public AvailableExpressions() {
 		this(null);
 	}
@@ -49,6 +56,13 @@ public class AvailableExpressions
 	private AvailableExpressions(
 			ValueExpression expression) {
 		this.expression = expression;
+		Collection<Identifier> ids = getVariablesIn(expression);
+		if (ids.isEmpty())
+			this.variables = Collections.emptySet();
+		else if (ids.size() == 1)
+			this.variables = Collections.singleton(ids.iterator().next());
+		else
+			this.variables = Collections.unmodifiableCollection(ids);
 	}
 
 	@Override
@@ -79,7 +93,7 @@ public class AvailableExpressions
 
 	@Override
 	public Collection<Identifier> getInvolvedIdentifiers() {
-		return getVariablesIn(expression);
+		return variables;
 	}
 
 	private static Collection<Identifier> getVariablesIn(
@@ -121,7 +135,7 @@ public class AvailableExpressions
 		Collection<AvailableExpressions> result = new HashSet<>();
 		AvailableExpressions ae = new AvailableExpressions(expression);
 		// we don't add an expression if one of its variables is being redefined
-		if (!ae.getInvolvedIdentifiers().contains(id) && filter(expression))
+		if (!ae.variables.contains(id) && filter(expression))
 			result.add(ae);
 		return result;
 	}
@@ -164,14 +178,18 @@ public class AvailableExpressions
 			DefiniteDataflowDomain<AvailableExpressions> domain) {
 		// we kill all of the elements that refer to expressions using the
 		// variable being assinged
-		Collection<AvailableExpressions> result = new HashSet<>();
+		if (domain instanceof IndexedDefiniteDataflowDomain)
+			// the domain already knows the expressions using the variable: its
+			// index is carried over from the previous state, so this is a
+			// lookup, and removing them from the next state touches only the
+			// entries of the variables they use
+			return ((IndexedDefiniteDataflowDomain<AvailableExpressions>) domain).getDataflowElements(id);
 
-		for (AvailableExpressions ae : domain.getDataflowElements()) {
-			Collection<Identifier> ids = getVariablesIn(ae.expression);
+		Collection<AvailableExpressions> result = new HashSet<>();
 
-			if (ids.contains(id))
+		for (AvailableExpressions ae : domain.getDataflowElements())
+			if (ae.variables.contains(id))
 				result.add(ae);
-		}
 
 		return result;
 	}
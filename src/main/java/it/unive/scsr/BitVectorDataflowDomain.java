@@ -0,0 +1,422 @@
+package it.unive.scsr;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.dataflow.DataflowDomain;
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.analysis.dataflow.DefiniteDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleDataflowDomain;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+/**
+ * A bit-vector implementation of {@link DefiniteDataflowDomain} and
+ * {@link PossibleDataflowDomain}, computing the same results for the same
+ * {@link DataflowElement}s. Facts are interned in a {@link FactTable} shared
+ * by the whole analysis, and each state is a bitset over it: joins are
+ * word-wise unions (possible analyses) or intersections (definite analyses),
+ * and the facts killed by an assignment are a mask that the table keeps for
+ * each identifier.<br>
+ * <br>
+ * Kill sets are not computed through the elements: this domain supports
+ * analyses where an assignment to a variable kills exactly the facts involving
+ * it (as reported by {@link DataflowElement#getInvolvedIdentifiers()}), and
+ * where statements that do not assign kill nothing. This is the case of
+ * {@link ReachingDefinitions}, {@link AvailableExpressions} and
+ * {@link CPropSolution}. Gen sets are still computed by the elements, that
+ * receive a set-based view of the current state.
+ *
+ * @param <D> the type of set-based dataflow domain this domain implements
+ * @param <E> the type of dataflow elements
+ */
+public class BitVectorDataflowDomain<D extends DataflowDomain<D, E>, E extends DataflowElement<D, E>>
+		implements
+		ValueDomain<BitVectorDataflowDomain<D, E>>,
+		BaseLattice<BitVectorDataflowDomain<D, E>> {
+
+	/**
+	 * The set-based domain, used to build the views passed to the elements
+	 * and the representation of the states.
+	 */
+	private final D sets;
+
+	/**
+	 * A singleton element, providing gen functions.
+	 */
+	private final E element;
+
+	/**
+	 * Whether this is a definite analysis (joins are intersections) or a
+	 * possible one (joins are unions).
+	 */
+	private final boolean definite;
+
+	private final FactTable<E> table;
+
+	/**
+	 * The facts holding in this state, as indexes of {@link #table}. Never
+	 * modified after construction.
+	 */
+	private final BitSet facts;
+
+	private final boolean isTop;
+
+	private final boolean isBottom;
+
+	private BitVectorDataflowDomain(
+			D sets,
+			E element,
+			boolean definite,
+			FactTable<E> table,
+			BitSet facts,
+			boolean isTop,
+			boolean isBottom) {
+		this.sets = sets;
+		this.element = element;
+		this.definite = definite;
+		this.table = table;
+		this.facts = facts;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	/**
+	 * Builds the bit-vector counterpart of
+	 * {@code new DefiniteDataflowDomain<>(element)}.
+	 *
+	 * @param <E>     the type of dataflow elements
+	 * @param element a singleton instance to be used during semantic
+	 *                    operations
+	 *
+	 * @return the top state of the domain
+	 */
+	public static <E extends DataflowElement<DefiniteDataflowDomain<E>, E>> BitVectorDataflowDomain<
+			DefiniteDataflowDomain<E>, E> definite(
+					E element) {
+		return new BitVectorDataflowDomain<>(new DefiniteDataflowDomain<>(element), element, true,
+				new FactTable<>(E::getInvolvedIdentifiers), new BitSet(), true, false);
+	}
+
+	/**
+	 * Builds the bit-vector counterpart of
+	 * {@code new PossibleDataflowDomain<>(element)}.
+	 *
+	 * @param <E>     the type of dataflow elements
+	 * @param element a singleton instance to be used during semantic
+	 *                    operations
+	 *
+	 * @return the top state of the domain
+	 */
+	public static <E extends DataflowElement<PossibleDataflowDomain<E>, E>> BitVectorDataflowDomain<
+			PossibleDataflowDomain<E>, E> possible(
+					E element) {
+		return new BitVectorDataflowDomain<>(new PossibleDataflowDomain<>(element), element, false,
+				new FactTable<>(E::getInvolvedIdentifiers), new BitSet(), true, false);
+	}
+
+	private BitVectorDataflowDomain<D, E> mk(
+			BitSet facts) {
+		return new BitVectorDataflowDomain<>(sets, element, definite, table, facts, false, false);
+	}
+
+	/**
+	 * Yields the set-based state holding the same facts of this one. The
+	 * returned state is backed by this one, and it is built in constant time.
+	 *
+	 * @return the set-based state
+	 */
+	D toSets() {
+		return sets.mk(element, new FactSet<>(table, facts), isTop, isBottom);
+	}
+
+	/**
+	 * Yields the facts holding in this state.
+	 *
+	 * @return the facts
+	 */
+	public Set<E> getDataflowElements() {
+		return new FactSet<>(table, facts);
+	}
+
+	private BitVectorDataflowDomain<D, E> update(
+			BitSet killed,
+			Collection<E> generated) {
+		BitSet result = (BitSet) facts.clone();
+		if (killed != null)
+			result.andNot(killed);
+		for (E fact : generated)
+			result.set(table.intern(fact));
+		return mk(result);
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// same guards of DataflowDomain.assign
+		if (!element.tracksIdentifiers(id, pp, oracle) || !element.canProcess(expression, pp, oracle))
+			return this;
+		// gen is computed on the state before the assignment, as the
+		// set-based domains do
+		Collection<E> generated = element.gen(id, expression, pp, toSets());
+		return update(table.involving(id), generated);
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> smallStepSemantics(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (!element.canProcess(expression, pp, oracle))
+			return this;
+		Collection<E> generated = element.gen(expression, pp, toSets());
+		if (generated.isEmpty() && !isTop && !isBottom)
+			return this;
+		return update(null, generated);
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> assume(
+			ValueExpression expression,
+			ProgramPoint src,
+			ProgramPoint dest,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// dataflow analyses ignore branching conditions
+		return this;
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> forgetIdentifier(
+			Identifier id)
+			throws SemanticException {
+		if (isTop() || isBottom())
+			return this;
+		BitVectorDataflowDomain<D, E> result = update(table.involving(id), Collections.emptySet());
+		return result.facts.equals(facts) ? this : result;
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> forgetIdentifiersIf(
+			Predicate<Identifier> test)
+			throws SemanticException {
+		if (isTop() || isBottom())
+			return this;
+		BitSet result = (BitSet) facts.clone();
+		for (int i = facts.nextSetBit(0); i >= 0; i = facts.nextSetBit(i + 1))
+			for (Identifier id : table.get(i).getInvolvedIdentifiers())
+				if (test.test(id)) {
+					result.clear(i);
+					break;
+				}
+		return result.equals(facts) ? this : mk(result);
+	}
+
+	@Override
+	public Satisfiability satisfies(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public boolean knowsIdentifier(
+			Identifier id) {
+		return facts.intersects(table.involving(id));
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> pushScope(
+			ScopeToken token)
+			throws SemanticException {
+		if (isTop() || isBottom())
+			return this;
+		BitSet result = new BitSet();
+		for (int i = facts.nextSetBit(0); i >= 0; i = facts.nextSetBit(i + 1))
+			result.set(table.intern(table.get(i).pushScope(token)));
+		return mk(result);
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> popScope(
+			ScopeToken token)
+			throws SemanticException {
+		if (isTop() || isBottom())
+			return this;
+		BitSet result = new BitSet();
+		for (int i = facts.nextSetBit(0); i >= 0; i = facts.nextSetBit(i + 1))
+			result.set(table.intern(table.get(i).popScope(token)));
+		return mk(result);
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> lubAux(
+			BitVectorDataflowDomain<D, E> other)
+			throws SemanticException {
+		BitSet result = (BitSet) facts.clone();
+		if (definite)
+			result.and(other.facts);
+		else
+			result.or(other.facts);
+		return mk(result);
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> glbAux(
+			BitVectorDataflowDomain<D, E> other)
+			throws SemanticException {
+		BitSet result = (BitSet) facts.clone();
+		if (definite)
+			result.or(other.facts);
+		else
+			result.and(other.facts);
+		return mk(result);
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			BitVectorDataflowDomain<D, E> other)
+			throws SemanticException {
+		BitSet diff;
+		if (definite) {
+			// more facts means more precise
+			diff = (BitSet) other.facts.clone();
+			diff.andNot(facts);
+		} else {
+			diff = (BitSet) facts.clone();
+			diff.andNot(other.facts);
+		}
+		return diff.isEmpty();
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> top() {
+		return new BitVectorDataflowDomain<>(sets, element, definite, table, new BitSet(), true, false);
+	}
+
+	@Override
+	public boolean isTop() {
+		return facts.isEmpty() && isTop;
+	}
+
+	@Override
+	public BitVectorDataflowDomain<D, E> bottom() {
+		return new BitVectorDataflowDomain<>(sets, element, definite, table, new BitSet(), false, true);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return facts.isEmpty() && isBottom;
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		return sets.mk(element, new HashSet<>(getDataflowElements()), isTop, isBottom).representation();
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(definite, facts, isTop, isBottom);
+	}
+
+	@Override
+	public boolean equals(
+			Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BitVectorDataflowDomain<?, ?> other = (BitVectorDataflowDomain<?, ?>) obj;
+		return definite == other.definite && isTop == other.isTop && isBottom == other.isBottom
+				&& table == other.table && facts.equals(other.facts);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+
+	/**
+	 * A read-only view of a set of facts stored as a bitset.
+	 *
+	 * @param <E> the type of facts
+	 */
+	private static class FactSet<E> extends AbstractSet<E> {
+
+		private final FactTable<E> table;
+
+		private final BitSet facts;
+
+		private FactSet(
+				FactTable<E> table,
+				BitSet facts) {
+			this.table = table;
+			this.facts = facts;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean contains(
+				Object o) {
+			int index = table.indexOf((E) o);
+			return index >= 0 && facts.get(index);
+		}
+
+		@Override
+		public int size() {
+			return facts.cardinality();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return facts.isEmpty();
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+
+				private int next = facts.nextSetBit(0);
+
+				@Override
+				public boolean hasNext() {
+					return next >= 0;
+				}
+
+				@Override
+				public E next() {
+					if (next < 0)
+						throw new NoSuchElementException();
+					E result = table.get(next);
+					next = facts.nextSetBit(next + 1);
+					return result;
+				}
+			};
+		}
+	}
+}
@@ -67,9 +67,28 @@ public class CPropSolution implements DataflowElement<DefiniteDataflowDomain<CPr
 		return Collections.singleton(id);
 	}
 
+	private static Collection<CPropSolution> getElementsOf(
+			Identifier id,
+			DefiniteDataflowDomain<CPropSolution> domain) {
+		if (domain instanceof IndexedDefiniteDataflowDomain)
+			return ((IndexedDefiniteDataflowDomain<CPropSolution>) domain).getDataflowElements(id);
+
+		Collection<CPropSolution> result = new HashSet<>();
+		for (CPropSolution cp : domain.getDataflowElements())
+			if (cp.id.equals(id))
+				result.add(cp);
+		return result;
+	}
+
 	private static Integer getValueOf(
 			Identifier id,
 			DefiniteDataflowDomain<CPropSolution> domain) {
+		if (domain instanceof IndexedDefiniteDataflowDomain) {
+			for (CPropSolution cp : ((IndexedDefiniteDataflowDomain<CPropSolution>) domain).getDataflowElements(id))
+				return cp.constant;
+			return null;
+		}
+
 		for (CPropSolution cp : domain.getDataflowElements())
 			if (cp.id.equals(id))
 				return cp.constant;
@@ -155,13 +174,7 @@ public class CPropSolution implements DataflowElement<DefiniteDataflowDomain<CPr
 			ProgramPoint pp,
 			DefiniteDataflowDomain<CPropSolution> domain)
 			throws SemanticException {
-		Collection<CPropSolution> result = new HashSet<>();
-
-		for (CPropSolution cp : domain.getDataflowElements())
-			if (cp.id.equals(id))
-				result.add(cp);
-
-		return result;
+		return getElementsOf(id, domain);
 	}
 
 	@Override
@@ -0,0 +1,129 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * An immutable index from each {@link Identifier} to the dataflow elements
+ * that involve it (as reported by their {@code getInvolvedIdentifiers()}), so
+ * that elements can look up the facts about a variable without scanning the
+ * whole set of elements of a state. The index of a state obtained
+ * through gen and kill is derived from the one of its predecessor with
+ * {@link #update(Collection, Collection, Function)}, sharing the entries of
+ * all the identifiers that are not involved in the update.
+ *
+ * @param <E> the type of dataflow elements
+ */
+final class DataflowIndex<E> {
+
+	private final Map<Identifier, List<E>> elements;
+
+	private DataflowIndex(
+			Map<Identifier, List<E>> elements) {
+		this.elements = elements;
+	}
+
+	/**
+	 * Builds the index of the given elements.
+	 *
+	 * @param <E>      the type of dataflow elements
+	 * @param elements the elements to index
+	 * @param involved the function yielding the identifiers involved in an
+	 *                     element
+	 *
+	 * @return the index
+	 */
+	static <E> DataflowIndex<E> of(
+			Collection<E> elements,
+			Function<E, Collection<Identifier>> involved) {
+		Map<Identifier, List<E>> map = new HashMap<>();
+		for (E element : elements)
+			for (Identifier id : involved.apply(element))
+				map.computeIfAbsent(id, k -> new ArrayList<>(1)).add(element);
+		map.replaceAll((id, list) -> Collections.unmodifiableList(list));
+		return new DataflowIndex<>(map);
+	}
+
+	/**
+	 * Yields the elements involving the given identifier.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the elements involving {@code id} (possibly empty)
+	 */
+	Collection<E> get(
+			Identifier id) {
+		List<E> result = elements.get(id);
+		return result == null ? Collections.emptyList() : result;
+	}
+
+	/**
+	 * Yields the index of the elements indexed by this one, without the
+	 * {@code killed} ones and with the {@code generated} ones. Only the
+	 * entries of the identifiers involved in killed or generated elements are
+	 * rebuilt, while the other ones are shared. The map holding the entries is
+	 * still copied, so the update costs time linear in the number of indexed
+	 * identifiers.
+	 *
+	 * @param killed    the elements to remove
+	 * @param generated the elements to add
+	 * @param involved  the function yielding the identifiers involved in an
+	 *                      element
+	 *
+	 * @return the updated index
+	 */
+	DataflowIndex<E> update(
+			Collection<E> killed,
+			Collection<E> generated,
+			Function<E, Collection<Identifier>> involved) {
+		if (killed.isEmpty() && generated.isEmpty())
+			return this;
+
+		Map<Identifier, List<E>> map = new HashMap<>(elements);
+		if (!killed.isEmpty()) {
+			// kills usually yield few elements, that are cheaper to scan
+			Collection<E> removed = killed instanceof Set || killed.size() <= 4 ? killed : new HashSet<>(killed);
+			for (E element : killed)
+				for (Identifier id : involved.apply(element)) {
+					List<E> entry = map.get(id);
+					if (entry == null)
+						// already removed altogether
+						continue;
+					if (removed.containsAll(entry)) {
+						map.remove(id);
+						continue;
+					}
+					List<E> kept = new ArrayList<>(entry.size());
+					for (E e : entry)
+						if (!removed.contains(e))
+							kept.add(e);
+					if (kept.size() < entry.size())
+						map.put(id, Collections.unmodifiableList(kept));
+				}
+		}
+
+		for (E element : generated)
+			for (Identifier id : involved.apply(element)) {
+				List<E> entry = map.get(id);
+				if (entry == null)
+					map.put(id, Collections.singletonList(element));
+				else if (!entry.contains(element)) {
+					List<E> added = new ArrayList<>(entry.size() + 1);
+					added.addAll(entry);
+					added.add(element);
+					map.put(id, Collections.unmodifiableList(added));
+				}
+			}
+
+		return new DataflowIndex<>(map);
+	}
+}
@@ -0,0 +1,163 @@
+package it.unive.scsr;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.dataflow.DataflowDomain;
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * The index of a state of {@link IndexedDefiniteDataflowDomain} or
+ * {@link IndexedPossibleDataflowDomain}, together with the gen and kill
+ * semantics that carry it over to the following states. Each state owns an
+ * instance: assignments and small-step semantics compute gen and kill as
+ * {@link DataflowDomain} does, and derive the index of the new state from the
+ * one of this state, applying only the gen and kill changes, while the index
+ * of states built otherwise (e.g., by lattice operations) is built lazily, the
+ * first time it is needed.<br>
+ * <br>
+ * Only the lookup of the elements involving an identifier is indexed: each
+ * update still copies the set of elements of the state, as
+ * {@link DataflowDomain} does, and the map of the index, and thus costs time
+ * linear in the number of elements and of indexed identifiers.
+ *
+ * @param <D> the type of dataflow domain
+ * @param <E> the type of dataflow elements
+ */
+final class DataflowIndexing<D extends DataflowDomain<D, E>, E extends DataflowElement<D, E>> {
+
+	/**
+	 * A constructor of the states of an indexed domain.
+	 *
+	 * @param <S> the type of states
+	 * @param <E> the type of dataflow elements
+	 */
+	@FunctionalInterface
+	interface Factory<S, E> {
+		S mk(
+				E element,
+				Set<E> elements,
+				DataflowIndex<E> index);
+	}
+
+	/**
+	 * The singleton instance computing gen and kill.
+	 */
+	private final E element;
+
+	private volatile DataflowIndex<E> index;
+
+	/**
+	 * Builds the indexing of a state.
+	 *
+	 * @param element the singleton instance computing gen and kill
+	 * @param index   the index of the state, or {@code null} if it has to be
+	 *                    built lazily
+	 */
+	DataflowIndexing(
+			E element,
+			DataflowIndex<E> index) {
+		this.element = element;
+		this.index = index;
+	}
+
+	/**
+	 * Yields the state resulting from an assignment on the given state, that
+	 * owns this instance.
+	 *
+	 * @param <S>        the type of states
+	 * @param state      the state
+	 * @param id         the assigned identifier
+	 * @param expression the assigned expression
+	 * @param pp         the program point where the assignment happens
+	 * @param oracle     the oracle for inter-domain communication
+	 * @param factory    the constructor of the new state
+	 *
+	 * @return the new state
+	 *
+	 * @throws SemanticException if gen or kill fail
+	 */
+	<S extends D> S assign(
+			S state,
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle,
+			Factory<S, E> factory)
+			throws SemanticException {
+		// same as DataflowDomain.assign, but keeping track of the changes
+		if (!element.tracksIdentifiers(id, pp, oracle) || !element.canProcess(expression, pp, oracle))
+			return state;
+		return update(state, element.kill(id, expression, pp, state), element.gen(id, expression, pp, state),
+				factory);
+	}
+
+	/**
+	 * Yields the state resulting from the small-step semantics of an
+	 * expression on the given state, that owns this instance.
+	 *
+	 * @param <S>        the type of states
+	 * @param state      the state
+	 * @param expression the expression
+	 * @param pp         the program point where the expression is evaluated
+	 * @param oracle     the oracle for inter-domain communication
+	 * @param factory    the constructor of the new state
+	 *
+	 * @return the new state
+	 *
+	 * @throws SemanticException if gen or kill fail
+	 */
+	<S extends D> S smallStepSemantics(
+			S state,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle,
+			Factory<S, E> factory)
+			throws SemanticException {
+		if (!element.canProcess(expression, pp, oracle))
+			return state;
+		return update(state, element.kill(expression, pp, state), element.gen(expression, pp, state), factory);
+	}
+
+	private <S extends D> S update(
+			S state,
+			Collection<E> killed,
+			Collection<E> generated,
+			Factory<S, E> factory) {
+		Set<E> updated = new HashSet<>(state.getDataflowElements());
+		for (E e : killed)
+			updated.remove(e);
+		updated.addAll(generated);
+		return factory.mk(element, updated, index(state).update(killed, generated, E::getInvolvedIdentifiers));
+	}
+
+	/**
+	 * Yields the elements of the given state, that owns this instance, that
+	 * involve the given identifier.
+	 *
+	 * @param state the state
+	 * @param id    the identifier
+	 *
+	 * @return the elements involving {@code id}
+	 */
+	Collection<E> get(
+			D state,
+			Identifier id) {
+		return index(state).get(id);
+	}
+
+	private DataflowIndex<E> index(
+			D state) {
+		DataflowIndex<E> result = index;
+		if (result == null)
+			// racy but safe: the index is immutable and always the same
+			index = result = DataflowIndex.of(state.getDataflowElements(), E::getInvolvedIdentifiers);
+		return result;
+	}
+}
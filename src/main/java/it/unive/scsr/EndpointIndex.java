@@ -0,0 +1,151 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.util.numeric.MathNumber;
+
+/**
+ * An immutable index of the identifiers of a {@link ValueEnvironment} of
+ * {@link Intervals}, sorted by the lower bound of their interval. It is used
+ * by {@link Pentagons} to find all the identifiers whose lower bound is
+ * strictly greater than a given value with a binary search, instead of
+ * comparing it against every identifier. Identifiers mapped to the bottom
+ * interval are not indexed.
+ */
+final class EndpointIndex {
+
+	/**
+	 * The indexed identifiers, sorted by lower bound.
+	 */
+	private final Identifier[] ids;
+
+	/**
+	 * The lower bounds of the indexed identifiers, in the same order of
+	 * {@link #ids}.
+	 */
+	private final MathNumber[] lows;
+
+	private EndpointIndex(
+			Identifier[] ids,
+			MathNumber[] lows) {
+		this.ids = ids;
+		this.lows = lows;
+	}
+
+	/**
+	 * Builds the index of the given environment.
+	 *
+	 * @param intervals the environment to index
+	 *
+	 * @return the index
+	 */
+	static EndpointIndex of(
+			ValueEnvironment<Intervals> intervals) {
+		Set<Identifier> keys = intervals.getKeys();
+		Entry[] entries = new Entry[keys.size()];
+		int size = 0;
+		for (Identifier id : keys) {
+			Intervals state = intervals.getState(id);
+			if (!state.isBottom())
+				entries[size++] = new Entry(id, state.interval.getLow());
+		}
+		Arrays.sort(entries, 0, size, (l, r) -> l.low.compareTo(r.low));
+
+		Identifier[] ids = new Identifier[size];
+		MathNumber[] lows = new MathNumber[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = entries[i].id;
+			lows[i] = entries[i].low;
+		}
+		return new EndpointIndex(ids, lows);
+	}
+
+	/**
+	 * Yields the index obtained by replacing the interval of {@code id} with
+	 * {@code state}, in linear time and without sorting again.
+	 *
+	 * @param id    the identifier whose interval has changed
+	 * @param state the new interval of {@code id}
+	 *
+	 * @return the updated index
+	 */
+	EndpointIndex update(
+			Identifier id,
+			Intervals state) {
+		int old = -1;
+		for (int i = 0; i < ids.length && old < 0; i++)
+			if (ids[i].equals(id))
+				old = i;
+
+		int size = ids.length - (old < 0 ? 0 : 1) + (state.isBottom() ? 0 : 1);
+		Identifier[] newIds = new Identifier[size];
+		MathNumber[] newLows = new MathNumber[size];
+		MathNumber low = state.isBottom() ? null : state.interval.getLow();
+		boolean inserted = low == null;
+		int j = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == old)
+				continue;
+			if (!inserted && lows[i].compareTo(low) >= 0) {
+				newIds[j] = id;
+				newLows[j++] = low;
+				inserted = true;
+			}
+			newIds[j] = ids[i];
+			newLows[j++] = lows[i];
+		}
+		if (!inserted) {
+			newIds[j] = id;
+			newLows[j] = low;
+		}
+		return new EndpointIndex(newIds, newLows);
+	}
+
+	/**
+	 * Yields the identifiers whose lower bound is strictly greater than
+	 * {@code bound}, excluding {@code exclude}.
+	 *
+	 * @param bound   the value to compare lower bounds against
+	 * @param exclude an identifier that must not be part of the result
+	 *
+	 * @return the matching identifiers
+	 */
+	Set<Identifier> above(
+			MathNumber bound,
+			Identifier exclude) {
+		Set<Identifier> result = new HashSet<>();
+		for (int i = firstAbove(bound); i < ids.length; i++)
+			if (!ids[i].equals(exclude))
+				result.add(ids[i]);
+		return result;
+	}
+
+	private int firstAbove(
+			MathNumber bound) {
+		int lo = 0, hi = ids.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (lows[mid].compareTo(bound) > 0)
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		return lo;
+	}
+
+	private static class Entry {
+		private final Identifier id;
+		private final MathNumber low;
+
+		private Entry(
+				Identifier id,
+				MathNumber low) {
+			this.id = id;
+			this.low = low;
+		}
+	}
+}
@@ -0,0 +1,441 @@
+package it.unive.scsr;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.analysis.dataflow.DefiniteDataflowDomain;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.util.file.FileManager;
+import it.unive.scsr.StreamingReportComparer.Difference;
+
+/**
+ * An in-process counterpart of the task evaluations
+ * ({@code CPropTaskEvaluation}, {@code ParityTaskEvaluation} and
+ * {@code DefiniteTaintTaskEvaluation}), that evaluates many candidate
+ * implementations of a task in the same JVM. Each candidate is a directory
+ * (e.g., {@code build/classes/java/main} of a branch) or a jar containing the
+ * compiled classes of this project: the classes of package
+ * {@code it.unive.scsr} are loaded from the candidate, in a class loader that
+ * is discarded after the evaluation, while LiSA is shared by all the
+ * evaluations (and thus it is compiled by the JIT only once). Results are
+ * generated according to {@link OutputProfile#current()}, and compared with
+ * the ones in {@code expected/}. The expected results of the tasks with a
+ * checker are the warnings of the report, so these tasks do not serialize the
+ * results of the CFGs, and only the warnings are compared.<br>
+ * <br>
+ * Usage:
+ * {@code EvaluationHarness [--reference] [--streaming <differences>] <task> <candidate>...},
+ * where {@code <task>} is one of {@code cp-eval}, {@code parity-eval} and
+ * {@code definite-taint-eval}, {@code --reference} evaluates the reference
+ * solutions ({@link CPropSolution}, {@link ParitySolution} and
+ * {@link DefiniteTaintSolution}) instead of the classes implemented for the
+ * task, and {@code --streaming <differences>} compares the results with a
+ * {@link StreamingReportComparer}, reporting up to the given number of
+ * differences for each candidate. The exit code is the number of candidates
+ * that did not pass the evaluation.
+ */
+public class EvaluationHarness {
+
+	/**
+	 * The package whose classes are loaded from the candidates.
+	 */
+	private static final String PACKAGE = "it.unive.scsr.";
+
+	/**
+	 * The outcome of the evaluation of a candidate.
+	 */
+	public enum Outcome {
+		/**
+		 * The results are the expected ones.
+		 */
+		PASS,
+
+		/**
+		 * The results differ from the expected ones.
+		 */
+		FAIL,
+
+		/**
+		 * The candidate could not be loaded, or its analysis failed.
+		 */
+		ERROR
+	}
+
+	/**
+	 * The tasks that can be evaluated.
+	 */
+	public enum Task {
+
+		/**
+		 * Constant propagation, on {@code inputs/cp-eval.imp}.
+		 */
+		CPROP("cp-eval", "CProp", "CPropSolution", null, null) {
+			@Override
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			ValueDomain<?> domain(
+					Object element) {
+				return new DefiniteDataflowDomain((DataflowElement) element);
+			}
+		},
+
+		/**
+		 * Parity, on {@code inputs/parity-eval.imp}.
+		 */
+		PARITY("parity-eval", "Parity", "ParitySolution", null, null) {
+			@Override
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			ValueDomain<?> domain(
+					Object element) {
+				return new ValueEnvironment((NonRelationalValueDomain) element);
+			}
+		},
+
+		/**
+		 * Definite taint, on {@code inputs/definite-taint-eval.imp}. Only the
+		 * warnings of the checker are compared.
+		 */
+		DEFINITE_TAINT("definite-taint-eval", "DefiniteTaint", "DefiniteTaintSolution",
+				"checkers.DefiniteTaintChecker", "checkers.DefiniteTaintSolutionChecker") {
+			@Override
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			ValueDomain<?> domain(
+					Object element) {
+				return new ValueEnvironment((NonRelationalValueDomain) element);
+			}
+		};
+
+		private final String id;
+
+		private final String domainClass;
+
+		private final String referenceClass;
+
+		private final String checkerClass;
+
+		private final String referenceCheckerClass;
+
+		private Task(
+				String id,
+				String domainClass,
+				String referenceClass,
+				String checkerClass,
+				String referenceCheckerClass) {
+			this.id = id;
+			this.domainClass = domainClass;
+			this.referenceClass = referenceClass;
+			this.checkerClass = checkerClass;
+			this.referenceCheckerClass = referenceCheckerClass;
+		}
+
+		/**
+		 * Yields the identifier of this task, that is also the name of its
+		 * input file and of its folder in {@code expected/}.
+		 *
+		 * @return the identifier
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * Yields the task with the given identifier.
+		 *
+		 * @param id the identifier
+		 *
+		 * @return the task
+		 *
+		 * @throws IllegalArgumentException if no task has the given identifier
+		 */
+		public static Task of(
+				String id) {
+			for (Task task : values())
+				if (task.id.equals(id))
+					return task;
+			throw new IllegalArgumentException("Unknown task: " + id);
+		}
+
+		/**
+		 * Builds the value domain of the analysis from an instance of the
+		 * candidate class.
+		 *
+		 * @param element the instance of the candidate class
+		 *
+		 * @return the value domain
+		 */
+		abstract ValueDomain<?> domain(
+				Object element);
+	}
+
+	/**
+	 * The result of the evaluation of a candidate.
+	 */
+	public static class Result {
+
+		private final String candidate;
+
+		private final Outcome outcome;
+
+		private final String message;
+
+		private Result(
+				String candidate,
+				Outcome outcome,
+				String message) {
+			this.candidate = candidate;
+			this.outcome = outcome;
+			this.message = message;
+		}
+
+		/**
+		 * Yields the evaluated candidate.
+		 *
+		 * @return the path of the candidate
+		 */
+		public String getCandidate() {
+			return candidate;
+		}
+
+		/**
+		 * Yields the outcome of the evaluation.
+		 *
+		 * @return the outcome
+		 */
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		@Override
+		public String toString() {
+			return outcome + " " + candidate + (message == null ? "" : ": " + message);
+		}
+	}
+
+	private final Task task;
+
+	private final boolean reference;
+
+	private final String workdir;
+
+	private int maxDifferences;
+
+	/**
+	 * Builds the harness.
+	 *
+	 * @param task      the task to evaluate
+	 * @param reference whether the reference solutions should be evaluated
+	 *                      instead of the classes implemented for the task
+	 * @param workdir   the folder where the results of each candidate are
+	 *                      generated, in a sub-folder named after its
+	 *                      position among the evaluated candidates
+	 */
+	public EvaluationHarness(
+			Task task,
+			boolean reference,
+			String workdir) {
+		this.task = task;
+		this.reference = reference;
+		this.workdir = workdir;
+	}
+
+	/**
+	 * Compares the results with a {@link StreamingReportComparer} instead of
+	 * a {@link JsonReportComparer}, reporting where the results diverged. The
+	 * streaming comparer is always used with the {@link OutputProfile#LEAN}
+	 * profile, as the expected results also contain the html graphs, and for
+	 * the tasks with a checker: in these cases, this method only sets the
+	 * number of reported differences.
+	 *
+	 * @param maxDifferences the number of differences after which the
+	 *                           comparison of a candidate stops
+	 *
+	 * @return this harness
+	 */
+	public EvaluationHarness streaming(
+			int maxDifferences) {
+		this.maxDifferences = maxDifferences;
+		return this;
+	}
+
+	/**
+	 * Evaluates the given candidates, one after the other.
+	 *
+	 * @param candidates the paths of the candidates
+	 *
+	 * @return the results of the evaluations, in the same order
+	 */
+	public List<Result> evaluate(
+			List<String> candidates) {
+		List<Result> results = new ArrayList<>(candidates.size());
+		for (int i = 0; i < candidates.size(); i++)
+			results.add(evaluate(candidates.get(i), Paths.get(workdir, String.valueOf(i)).toString()));
+		return results;
+	}
+
+	private Result evaluate(
+			String candidate,
+			String output) {
+		try (CandidateClassLoader loader = new CandidateClassLoader(Paths.get(candidate))) {
+			Object element = loader.loadClass(PACKAGE + (reference ? task.referenceClass : task.domainClass))
+					.getDeclaredConstructor().newInstance();
+			String checkerName = reference ? task.referenceCheckerClass : task.checkerClass;
+			Class<?> checker = checkerName == null ? null : loader.loadClass(PACKAGE + checkerName);
+
+			Program program = IMPFrontend.processFile("inputs/" + task.id + ".imp");
+			LiSAConfiguration conf = new DefaultConfiguration();
+			conf.workdir = output;
+			OutputProfile.current().apply(conf);
+			setDomain(conf, task.domain(element));
+			if (checker != null) {
+				// the expected results are just the warnings
+				conf.serializeResults = false;
+				TaintAnnotations.load(program, (Annotation) checker.getField("SINK_ANNOTATION").get(null));
+				conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+				conf.semanticChecks.add((SemanticCheck<?>) checker.getDeclaredConstructor().newInstance());
+			}
+
+			FileManager.forceDeleteFolder(conf.workdir);
+			new LiSA(conf).run(program);
+			return compare(candidate, output);
+		} catch (Exception | LinkageError e) {
+			return new Result(candidate, Outcome.ERROR, e.toString());
+		}
+	}
+
+	private Result compare(
+			String candidate,
+			String output)
+			throws IOException {
+		Path expectedPath = Paths.get("expected", task.id);
+		Path actualPath = Paths.get(output);
+		// with no serialized results, the streaming comparer only compares the
+		// warnings of the reports, while JsonReportComparer would also
+		// compare the lists of generated files
+		if (maxDifferences > 0 || OutputProfile.current() == OutputProfile.LEAN || task.checkerClass != null) {
+			List<Difference> differences = new StreamingReportComparer(maxDifferences).compare(expectedPath,
+					actualPath);
+			if (differences.isEmpty())
+				return new Result(candidate, Outcome.PASS, null);
+			StringBuilder message = new StringBuilder("results are different");
+			for (Difference difference : differences)
+				message.append(System.lineSeparator()).append("\t").append(difference);
+			return new Result(candidate, Outcome.FAIL, message.toString());
+		}
+
+		try (Reader expReader = new FileReader(expectedPath.resolve("report.json").toFile());
+				Reader actReader = new FileReader(actualPath.resolve("report.json").toFile())) {
+			JsonReport expected = JsonReport.read(expReader);
+			JsonReport actual = JsonReport.read(actReader);
+			if (JsonReportComparer.compare(expected, actual, expectedPath.toFile(), actualPath.toFile()))
+				return new Result(candidate, Outcome.PASS, null);
+			return new Result(candidate, Outcome.FAIL, "results are different");
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void setDomain(
+			LiSAConfiguration conf,
+			ValueDomain domain) {
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				domain,
+				DefaultConfiguration.defaultTypeDomain());
+	}
+
+	/**
+	 * A class loader that loads the classes of this project from a
+	 * candidate, and delegates all the other classes (e.g., LiSA and the JDK)
+	 * to the class loader of the harness. Classes of this project that the
+	 * candidate does not contain are delegated as well.
+	 */
+	private static class CandidateClassLoader extends URLClassLoader {
+
+		static {
+			registerAsParallelCapable();
+		}
+
+		private CandidateClassLoader(
+				Path candidate)
+				throws MalformedURLException {
+			super(new URL[] { candidate.toUri().toURL() }, EvaluationHarness.class.getClassLoader());
+		}
+
+		@Override
+		protected Class<?> loadClass(
+				String name,
+				boolean resolve)
+				throws ClassNotFoundException {
+			if (!name.startsWith(PACKAGE))
+				return super.loadClass(name, resolve);
+
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> result = findLoadedClass(name);
+				if (result == null)
+					try {
+						result = findClass(name);
+					} catch (ClassNotFoundException e) {
+						result = super.loadClass(name, false);
+					}
+				if (resolve)
+					resolveClass(result);
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the candidates given on the command line.
+	 *
+	 * @param args the command line arguments
+	 */
+	public static void main(
+			String[] args) {
+		List<String> arguments = new ArrayList<>(Arrays.asList(args));
+		boolean reference = arguments.remove("--reference");
+		int maxDifferences = 0;
+		int streaming = arguments.indexOf("--streaming");
+		if (streaming >= 0 && streaming + 1 < arguments.size()) {
+			maxDifferences = Integer.parseInt(arguments.remove(streaming + 1));
+			arguments.remove(streaming);
+		}
+		if (arguments.size() < 2) {
+			System.err.println("Usage: EvaluationHarness [--reference] [--streaming <differences>] "
+					+ "<cp-eval|parity-eval|definite-taint-eval> <candidate>...");
+			System.exit(-1);
+		}
+
+		Task task = Task.of(arguments.remove(0));
+		EvaluationHarness harness = new EvaluationHarness(task, reference,
+				"outputs" + File.separator + "harness" + File.separator + task.id).streaming(maxDifferences);
+		int failures = 0;
+		for (Result result : harness.evaluate(arguments)) {
+			System.out.println(result);
+			if (result.getOutcome() != Outcome.PASS)
+				failures++;
+		}
+		System.exit(failures);
+	}
+}
@@ -0,0 +1,142 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * A table interning the dataflow facts of an analysis to dense, non-negative
+ * integers, so that sets of facts can be stored as bitsets. Facts are interned
+ * lazily, the first time they are generated, and indexes never change. For
+ * each identifier, the table also keeps the bitset of the facts involving it,
+ * that is the set of facts killed by an assignment to it. The table is shared
+ * by all the lattice elements of a single analysis, and can be safely used by
+ * multiple threads: as in {@link IdentifierTable}, only interning new facts
+ * takes a lock, while lookups never block.
+ *
+ * @param <E> the type of facts
+ */
+final class FactTable<E> {
+
+	/**
+	 * The facts involving identifiers that no interned fact involves.
+	 */
+	private static final BitSet NONE = new BitSet();
+
+	private final Function<E, Collection<Identifier>> involved;
+
+	/**
+	 * The index assigned to each interned fact.
+	 */
+	private final Map<E, Integer> indexes = new ConcurrentHashMap<>();
+
+	/**
+	 * The interned facts, where the one at position {@code i} has index
+	 * {@code i}.
+	 */
+	private volatile Object[] facts = new Object[16];
+
+	/**
+	 * The number of interned facts. Only accessed while holding the lock on
+	 * this table.
+	 */
+	private int size = 0;
+
+	/**
+	 * The facts involving each identifier. Bitsets are never modified once
+	 * they are in the map: interning a fact replaces them with updated copies.
+	 */
+	private final Map<Identifier, BitSet> involving = new ConcurrentHashMap<>();
+
+	/**
+	 * Builds an empty table.
+	 *
+	 * @param involved the function yielding the identifiers involved in a
+	 *                     fact
+	 */
+	FactTable(
+			Function<E, Collection<Identifier>> involved) {
+		this.involved = involved;
+	}
+
+	/**
+	 * Yields the index of the given fact, interning it if needed.
+	 *
+	 * @param fact the fact
+	 *
+	 * @return the index of {@code fact}
+	 */
+	int intern(
+			E fact) {
+		Integer index = indexes.get(fact);
+		if (index != null)
+			return index;
+
+		synchronized (this) {
+			index = indexes.get(fact);
+			if (index != null)
+				return index;
+
+			Object[] array = facts;
+			if (size == array.length)
+				array = Arrays.copyOf(array, size * 2);
+			array[size] = fact;
+			// the volatile write publishes the new slot before the index
+			facts = array;
+			for (Identifier id : involved.apply(fact)) {
+				BitSet previous = involving.get(id);
+				BitSet updated = previous == null ? new BitSet() : (BitSet) previous.clone();
+				updated.set(size);
+				involving.put(id, updated);
+			}
+			indexes.put(fact, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * Yields the index of the given fact, without interning it.
+	 *
+	 * @param fact the fact
+	 *
+	 * @return the index of {@code fact}, or {@code -1} if it has never been
+	 *             interned
+	 */
+	int indexOf(
+			E fact) {
+		Integer index = indexes.get(fact);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Yields the fact with the given index.
+	 *
+	 * @param index the index, as returned by {@link #intern(Object)}
+	 *
+	 * @return the fact
+	 */
+	@SuppressWarnings("unchecked")
+	E get(
+			int index) {
+		return (E) facts[index];
+	}
+
+	/**
+	 * Yields the facts interned so far that involve the given identifier.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the bitset containing the indexes of such facts, shared with
+	 *             this table: it must not be modified
+	 */
+	BitSet involving(
+			Identifier id) {
+		BitSet result = involving.get(id);
+		return result == null ? NONE : result;
+	}
+}
@@ -0,0 +1,109 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.unive.lisa.outputs.HtmlGraph;
+import it.unive.lisa.outputs.serializableGraph.SerializableGraph;
+import it.unive.lisa.util.file.FileManager;
+
+/**
+ * Renders the html graphs of the CFGs from the results serialized by LiSA
+ * ({@code conf.serializeResults = true}), producing the same files that LiSA
+ * produces with {@code conf.analysisGraphs = GraphType.HTML}. This allows
+ * analyses to skip the rendering (see {@link OutputProfile#LEAN}), and to
+ * render only the results that need to be inspected.<br>
+ * <br>
+ * Usage: {@code HtmlRenderer [--subnodes] <workdir>...}, where
+ * {@code --subnodes} also renders the sub-expressions of each node.
+ */
+public class HtmlRenderer {
+
+	private static final String REPORT = "report.json";
+
+	private final boolean subnodes;
+
+	/**
+	 * Builds the renderer.
+	 *
+	 * @param subnodes whether the sub-expressions of each node should be
+	 *                     rendered
+	 */
+	public HtmlRenderer(
+			boolean subnodes) {
+		this.subnodes = subnodes;
+	}
+
+	/**
+	 * Renders all the serialized CFGs of the given working directory, next to
+	 * the serialized files, together with the javascript files they need.
+	 *
+	 * @param workdir the working directory
+	 *
+	 * @return the rendered files
+	 *
+	 * @throws IOException if the files cannot be read or written
+	 */
+	public List<Path> render(
+			Path workdir)
+			throws IOException {
+		List<Path> graphs;
+		try (Stream<Path> files = Files.list(workdir)) {
+			graphs = files.filter(p -> p.getFileName().toString().endsWith(".json")
+					&& !p.getFileName().toString().equals(REPORT))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+
+		List<Path> result = new ArrayList<>(graphs.size());
+		for (Path json : graphs) {
+			String name = json.getFileName().toString();
+			Path html = json.resolveSibling(name.substring(0, name.length() - ".json".length()) + ".html");
+			SerializableGraph graph;
+			try (Reader reader = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+				graph = SerializableGraph.readGraph(reader);
+			}
+			HtmlGraph rendered = graph.toHtml(subnodes, "results");
+			try (Writer writer = Files.newBufferedWriter(html, StandardCharsets.UTF_8)) {
+				rendered.dump(writer);
+			}
+			result.add(html);
+		}
+
+		if (!result.isEmpty())
+			new FileManager(workdir.toString()).generateSupportFiles();
+		return result;
+	}
+
+	/**
+	 * Renders the working directories given on the command line.
+	 *
+	 * @param args the command line arguments
+	 *
+	 * @throws IOException if the files cannot be read or written
+	 */
+	public static void main(
+			String[] args)
+			throws IOException {
+		List<String> workdirs = new ArrayList<>(Arrays.asList(args));
+		boolean subnodes = workdirs.remove("--subnodes");
+		if (workdirs.isEmpty()) {
+			System.err.println("Usage: HtmlRenderer [--subnodes] <workdir>...");
+			System.exit(-1);
+		}
+
+		HtmlRenderer renderer = new HtmlRenderer(subnodes);
+		for (String workdir : workdirs)
+			System.out.println(workdir + ": rendered " + renderer.render(Paths.get(workdir)).size() + " graphs");
+	}
+}
@@ -0,0 +1,89 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * A table interning {@link Identifier}s to dense, non-negative integers, so
+ * that sets of identifiers can be stored as bitsets. Indexes are assigned in
+ * order of first interning and never change. The table is shared by all the
+ * lattice elements of a single analysis, and can be safely used by multiple
+ * threads.
+ */
+public class IdentifierTable {
+
+	/**
+	 * The index assigned to each interned identifier.
+	 */
+	private final Map<Identifier, Integer> indexes = new ConcurrentHashMap<>();
+
+	/**
+	 * The interned identifiers, where the one at position {@code i} has index
+	 * {@code i}.
+	 */
+	private volatile Identifier[] identifiers = new Identifier[16];
+
+	/**
+	 * The number of interned identifiers. Only accessed while holding the
+	 * lock on this table.
+	 */
+	private int size = 0;
+
+	/**
+	 * Yields the index of the given identifier, interning it if needed.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the index of {@code id}
+	 */
+	public int intern(
+			Identifier id) {
+		Integer index = indexes.get(id);
+		if (index != null)
+			return index;
+
+		synchronized (this) {
+			index = indexes.get(id);
+			if (index != null)
+				return index;
+
+			Identifier[] array = identifiers;
+			if (size == array.length)
+				array = Arrays.copyOf(array, size * 2);
+			array[size] = id;
+			// the volatile write publishes the new slot before the index
+			identifiers = array;
+			indexes.put(id, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * Yields the index of the given identifier, without interning it.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the index of {@code id}, or {@code -1} if it has never been
+	 *             interned
+	 */
+	public int indexOf(
+			Identifier id) {
+		Integer index = indexes.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Yields the identifier with the given index.
+	 *
+	 * @param index the index, as returned by {@link #intern(Identifier)}
+	 *
+	 * @return the identifier
+	 */
+	public Identifier get(
+			int index) {
+		return identifiers[index];
+	}
+}
@@ -0,0 +1,264 @@
+package it.unive.scsr;
+
+import java.util.Random;
+
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * A generator of synthetic IMP programs, to measure how analyses scale with
+ * the size of the analyzed code. Each generated class contains the
+ * {@code source1}, {@code sanitizer1} and {@code sink1} methods used by the
+ * taint tests, followed by the generated methods. Each generated method
+ * defines its locals, and then executes a sequence of statements where a nest
+ * of loops, of the configured depth, wraps the second half of them. Each
+ * statement is either:
+ * <ul>
+ * <li>with probability {@code branchDensity}, an if-then-else on a local, whose
+ * branches contain two statements each (branches are nested at most
+ * {@value #MAX_BRANCH_NESTING} times);</li>
+ * <li>with probability {@code taintDensity}, a call to the source, sanitizer
+ * or sink method;</li>
+ * <li>otherwise, an assignment of an arithmetic expression over locals and
+ * constants to a local.</li>
+ * </ul>
+ * Programs only depend on the parameters and on the seed.
+ */
+public class ImpGenerator {
+
+	/**
+	 * The maximum nesting of branches, that keeps the size of the generated
+	 * methods bounded for high branch densities.
+	 */
+	public static final int MAX_BRANCH_NESTING = 3;
+
+	private int classes = 1;
+
+	private int methods = 10;
+
+	private int locals = 5;
+
+	private int statements = 20;
+
+	private int loopDepth = 1;
+
+	private double branchDensity = 0.1;
+
+	private double taintDensity = 0.1;
+
+	private long seed = 42;
+
+	/**
+	 * Sets the number of classes to generate (default: 1).
+	 *
+	 * @param classes the number of classes
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator classes(
+			int classes) {
+		this.classes = classes;
+		return this;
+	}
+
+	/**
+	 * Sets the number of methods to generate in each class, besides the
+	 * source, sanitizer and sink ones (default: 10).
+	 *
+	 * @param methods the number of methods
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator methods(
+			int methods) {
+		this.methods = methods;
+		return this;
+	}
+
+	/**
+	 * Sets the number of locals of each method (default: 5).
+	 *
+	 * @param locals the number of locals, at least one
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator locals(
+			int locals) {
+		this.locals = Math.max(1, locals);
+		return this;
+	}
+
+	/**
+	 * Sets the number of top-level statements of each method (default: 20).
+	 *
+	 * @param statements the number of statements
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator statements(
+			int statements) {
+		this.statements = statements;
+		return this;
+	}
+
+	/**
+	 * Sets the depth of the loop nest of each method (default: 1). A depth of
+	 * zero generates methods without loops.
+	 *
+	 * @param loopDepth the depth of the loop nest
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator loopDepth(
+			int loopDepth) {
+		this.loopDepth = loopDepth;
+		return this;
+	}
+
+	/**
+	 * Sets the probability of a statement to be a branch (default: 0.1).
+	 *
+	 * @param branchDensity the probability, between 0 and 1
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator branchDensity(
+			double branchDensity) {
+		this.branchDensity = branchDensity;
+		return this;
+	}
+
+	/**
+	 * Sets the probability of a statement to be a call to a source, a
+	 * sanitizer or a sink (default: 0.1).
+	 *
+	 * @param taintDensity the probability, between 0 and 1
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator taintDensity(
+			double taintDensity) {
+		this.taintDensity = taintDensity;
+		return this;
+	}
+
+	/**
+	 * Sets the seed of the random choices (default: 42).
+	 *
+	 * @param seed the seed
+	 *
+	 * @return this generator
+	 */
+	public ImpGenerator seed(
+			long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Generates the IMP source code of a program.
+	 *
+	 * @return the source code
+	 */
+	public String generate() {
+		Random random = new Random(seed);
+		StringBuilder code = new StringBuilder();
+		for (int c = 0; c < classes; c++) {
+			code.append("class c").append(c).append(" {\n\n");
+			code.append("\tsource1() {\n\t\treturn -99;\n\t}\n\n");
+			code.append("\tsanitizer1(v) {\n\t\treturn 0;\n\t}\n\n");
+			code.append("\tsink1(v) {\n\t}\n\n");
+			for (int m = 0; m < methods; m++)
+				method(code, random, m);
+			code.append("}\n\n");
+		}
+		return code.toString();
+	}
+
+	/**
+	 * Generates a program and parses it.
+	 *
+	 * @return the parsed program
+	 *
+	 * @throws ParsingException if the generated program cannot be parsed
+	 */
+	public Program parse() throws ParsingException {
+		return IMPFrontend.processText(generate());
+	}
+
+	private void method(
+			StringBuilder code,
+			Random random,
+			int index) {
+		code.append("\tm").append(index).append("(p) {\n");
+		for (int l = 0; l < locals; l++)
+			indent(code, 2).append("def x").append(l).append(" = ").append(random.nextInt(10)).append(";\n");
+		for (int d = 0; d < loopDepth; d++)
+			indent(code, 2).append("def i").append(d).append(" = 0;\n");
+
+		int outside = loopDepth > 0 ? statements / 2 : statements;
+		for (int s = 0; s < outside; s++)
+			statement(code, random, 2, 0);
+
+		for (int d = 0; d < loopDepth; d++) {
+			indent(code, 2 + d).append("i").append(d).append(" = 0;\n");
+			indent(code, 2 + d).append("while (i").append(d).append(" < p) {\n");
+		}
+		for (int s = outside; s < statements; s++)
+			statement(code, random, 2 + loopDepth, 0);
+		for (int d = loopDepth - 1; d >= 0; d--) {
+			indent(code, 3 + d).append("i").append(d).append(" = i").append(d).append(" + 1;\n");
+			indent(code, 2 + d).append("}\n");
+		}
+
+		indent(code, 2).append("return x0;\n");
+		code.append("\t}\n\n");
+	}
+
+	private void statement(
+			StringBuilder code,
+			Random random,
+			int depth,
+			int branches) {
+		double choice = random.nextDouble();
+		if (choice < branchDensity && branches < MAX_BRANCH_NESTING) {
+			indent(code, depth).append("if (").append(local(random)).append(" < ").append(random.nextInt(10))
+					.append(") {\n");
+			for (int s = 0; s < 2; s++)
+				statement(code, random, depth + 1, branches + 1);
+			indent(code, depth).append("} else {\n");
+			for (int s = 0; s < 2; s++)
+				statement(code, random, depth + 1, branches + 1);
+			indent(code, depth).append("}\n");
+		} else if (choice < branchDensity + taintDensity)
+			switch (random.nextInt(3)) {
+			case 0:
+				indent(code, depth).append(local(random)).append(" = this.source1();\n");
+				break;
+			case 1:
+				indent(code, depth).append(local(random)).append(" = this.sanitizer1(").append(local(random))
+						.append(");\n");
+				break;
+			default:
+				indent(code, depth).append("this.sink1(").append(local(random)).append(");\n");
+			}
+		else
+			indent(code, depth).append(local(random)).append(" = ").append(local(random))
+					.append(random.nextBoolean() ? " + " : " - ")
+					.append(random.nextBoolean() ? local(random) : String.valueOf(random.nextInt(10))).append(";\n");
+	}
+
+	private String local(
+			Random random) {
+		return "x" + random.nextInt(locals);
+	}
+
+	private static StringBuilder indent(
+			StringBuilder code,
+			int depth) {
+		for (int i = 0; i < depth; i++)
+			code.append('\t');
+		return code;
+	}
+}
@@ -0,0 +1,115 @@
+package it.unive.scsr;
+
+import java.util.Collection;
+import java.util.Set;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.analysis.dataflow.DefiniteDataflowDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A {@link DefiniteDataflowDomain} that also indexes its elements by the
+ * identifiers they involve. Elements can use
+ * {@link #getDataflowElements(Identifier)} in their gen and kill functions to
+ * only visit the facts about the assigned or read variables. Assignments and
+ * small-step semantics derive the index of the new state from the one of this
+ * state, applying only the gen and kill changes, while the index of states
+ * built otherwise (e.g., by lattice operations) is built lazily, the first
+ * time it is needed. States are otherwise identical to the ones of
+ * {@link DefiniteDataflowDomain}: they have the same lattice operations and
+ * the same representation.<br>
+ * <br>
+ * Only the lookup of the elements involving an identifier is indexed: each
+ * assignment still copies the set of elements of the state, as
+ * {@link DefiniteDataflowDomain} does, and the map of the index, and thus
+ * costs time linear in the number of elements and of indexed identifiers.
+ *
+ * @param <E> the type of dataflow elements
+ */
+public class IndexedDefiniteDataflowDomain<E extends DataflowElement<DefiniteDataflowDomain<E>, E>>
+		extends DefiniteDataflowDomain<E> {
+
+	private final DataflowIndexing<DefiniteDataflowDomain<E>, E> indexing;
+
+	/**
+	 * Builds an empty domain.
+	 *
+	 * @param domain a singleton instance to be used during semantic operations
+	 *                   to retrieve top and bottom values
+	 */
+	public IndexedDefiniteDataflowDomain(
+			E domain) {
+		super(domain);
+		this.indexing = new DataflowIndexing<>(domain, null);
+	}
+
+	/**
+	 * Builds the domain.
+	 *
+	 * @param domain   a singleton instance to be used during semantic
+	 *                     operations to retrieve top and bottom values
+	 * @param elements the set of elements contained in the lattice
+	 * @param isTop    whether or not this is the top lattice
+	 * @param isBottom whether or not this is the bottom lattice
+	 */
+	public IndexedDefiniteDataflowDomain(
+			E domain,
+			Set<E> elements,
+			boolean isTop,
+			boolean isBottom) {
+		super(domain, elements, isTop, isBottom);
+		this.indexing = new DataflowIndexing<>(domain, null);
+	}
+
+	private IndexedDefiniteDataflowDomain(
+			E domain,
+			Set<E> elements,
+			DataflowIndex<E> index) {
+		super(domain, elements, false, false);
+		this.indexing = new DataflowIndexing<>(domain, index);
+	}
+
+	@Override
+	public IndexedDefiniteDataflowDomain<E> mk(
+			E domain,
+			Set<E> elements,
+			boolean isTop,
+			boolean isBottom) {
+		return new IndexedDefiniteDataflowDomain<>(domain, elements, isTop, isBottom);
+	}
+
+	@Override
+	public IndexedDefiniteDataflowDomain<E> assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return indexing.assign(this, id, expression, pp, oracle, IndexedDefiniteDataflowDomain::new);
+	}
+
+	@Override
+	public IndexedDefiniteDataflowDomain<E> smallStepSemantics(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return indexing.smallStepSemantics(this, expression, pp, oracle, IndexedDefiniteDataflowDomain::new);
+	}
+
+	/**
+	 * Yields the elements of this state that involve the given identifier.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the elements involving {@code id}
+	 */
+	public Collection<E> getDataflowElements(
+			Identifier id) {
+		return indexing.get(this, id);
+	}
+}
@@ -0,0 +1,107 @@
+package it.unive.scsr;
+
+import java.util.Collection;
+import java.util.Set;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.analysis.dataflow.PossibleDataflowDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A {@link PossibleDataflowDomain} that also indexes its elements by the
+ * identifiers they involve. This is the possible counterpart of
+ * {@link IndexedDefiniteDataflowDomain}: elements can use
+ * {@link #getDataflowElements(Identifier)} to only visit the facts about a
+ * given variable, the index of a state being derived from the one of its
+ * predecessor on assignments and small-step semantics, while states are
+ * otherwise identical to the ones of {@link PossibleDataflowDomain}.
+ *
+ * @param <E> the type of dataflow elements
+ */
+public class IndexedPossibleDataflowDomain<E extends DataflowElement<PossibleDataflowDomain<E>, E>>
+		extends PossibleDataflowDomain<E> {
+
+	private final DataflowIndexing<PossibleDataflowDomain<E>, E> indexing;
+
+	/**
+	 * Builds an empty domain.
+	 *
+	 * @param domain a singleton instance to be used during semantic operations
+	 *                   to retrieve top and bottom values
+	 */
+	public IndexedPossibleDataflowDomain(
+			E domain) {
+		super(domain);
+		this.indexing = new DataflowIndexing<>(domain, null);
+	}
+
+	/**
+	 * Builds the domain.
+	 *
+	 * @param domain   a singleton instance to be used during semantic
+	 *                     operations to retrieve top and bottom values
+	 * @param elements the set of elements contained in the lattice
+	 * @param isTop    whether or not this is the top lattice
+	 * @param isBottom whether or not this is the bottom lattice
+	 */
+	public IndexedPossibleDataflowDomain(
+			E domain,
+			Set<E> elements,
+			boolean isTop,
+			boolean isBottom) {
+		super(domain, elements, isTop, isBottom);
+		this.indexing = new DataflowIndexing<>(domain, null);
+	}
+
+	private IndexedPossibleDataflowDomain(
+			E domain,
+			Set<E> elements,
+			DataflowIndex<E> index) {
+		super(domain, elements, false, false);
+		this.indexing = new DataflowIndexing<>(domain, index);
+	}
+
+	@Override
+	public IndexedPossibleDataflowDomain<E> mk(
+			E domain,
+			Set<E> elements,
+			boolean isTop,
+			boolean isBottom) {
+		return new IndexedPossibleDataflowDomain<>(domain, elements, isTop, isBottom);
+	}
+
+	@Override
+	public IndexedPossibleDataflowDomain<E> assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return indexing.assign(this, id, expression, pp, oracle, IndexedPossibleDataflowDomain::new);
+	}
+
+	@Override
+	public IndexedPossibleDataflowDomain<E> smallStepSemantics(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return indexing.smallStepSemantics(this, expression, pp, oracle, IndexedPossibleDataflowDomain::new);
+	}
+
+	/**
+	 * Yields the elements of this state that involve the given identifier.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the elements involving {@code id}
+	 */
+	public Collection<E> getDataflowElements(
+			Identifier id) {
+		return indexing.get(this, id);
+	}
+}
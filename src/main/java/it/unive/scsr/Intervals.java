@@ -1,13 +1,24 @@
 package it.unive.scsr;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 
 import it.unive.lisa.analysis.Lattice;
 import it.unive.lisa.analysis.SemanticException;
 import it.unive.lisa.analysis.SemanticOracle;
 import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
 import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.NaryStatement;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.literal.Literal;
 import it.unive.lisa.symbolic.value.Constant;
 import it.unive.lisa.symbolic.value.ValueExpression;
 import it.unive.lisa.symbolic.value.operator.AdditionOperator;
@@ -16,6 +27,7 @@ import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
 import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
 import it.unive.lisa.util.numeric.IntInterval;
 import it.unive.lisa.util.numeric.MathNumber;
+import it.unive.lisa.util.numeric.MathNumberConversionException;
 import it.unive.lisa.util.representation.StringRepresentation;
 import it.unive.lisa.util.representation.StructuredRepresentation;
 
@@ -34,7 +46,15 @@ public class Intervals
 	 * The interval represented by this domain element.
 	 */
 	public final IntInterval interval;
-	
+
+	/**
+	 * The sorted thresholds used by the widening, or {@code null} if the
+	 * widening jumps directly to infinity. Thresholds are shared by all the
+	 * elements of the same analysis, and are not part of the state of an
+	 * element.
+	 */
+	private final MathNumber[] thresholds;
+
 	/**
 	 * The abstract zero ({@code [0, 0]}) element.
 	 */
@@ -50,6 +70,53 @@ public class Intervals
 	 */
 	public static final Intervals BOTTOM = new Intervals(null);
 
+	/**
+	 * The smallest finite bound of the cached intervals.
+	 */
+	private static final int CACHE_LOW = -128;
+
+	/**
+	 * The greatest finite bound of the cached intervals.
+	 */
+	private static final int CACHE_HIGH = 127;
+
+	/**
+	 * The cached {@code [k, k]} intervals, where the one at position {@code i}
+	 * has {@code k = i + CACHE_LOW}.
+	 */
+	private static final Intervals[] SINGLETONS = new Intervals[CACHE_HIGH - CACHE_LOW + 1];
+
+	/**
+	 * The cached {@code [k, +Inf]} intervals, indexed as {@link #SINGLETONS}.
+	 */
+	private static final Intervals[] ABOVE = new Intervals[SINGLETONS.length];
+
+	/**
+	 * The cached {@code [-Inf, k]} intervals, indexed as {@link #SINGLETONS}.
+	 */
+	private static final Intervals[] BELOW = new Intervals[SINGLETONS.length];
+
+	/**
+	 * The number of intervals served by the cache (a {@link LongAdder}, as
+	 * intervals might be built by concurrent analyses).
+	 */
+	private static final LongAdder HITS = new LongAdder();
+
+	/**
+	 * The number of intervals that have been built since they were not
+	 * cached.
+	 */
+	private static final LongAdder MISSES = new LongAdder();
+
+	static {
+		for (int k = CACHE_LOW; k <= CACHE_HIGH; k++) {
+			MathNumber bound = new MathNumber(k);
+			SINGLETONS[k - CACHE_LOW] = k == 0 ? ZERO : new Intervals(bound, bound);
+			ABOVE[k - CACHE_LOW] = new Intervals(bound, MathNumber.PLUS_INFINITY);
+			BELOW[k - CACHE_LOW] = new Intervals(MathNumber.MINUS_INFINITY, bound);
+		}
+	}
+
 	/**
 	 * Builds the interval.
 	 * 
@@ -57,7 +124,14 @@ public class Intervals
 	 */
 	public Intervals(
 			IntInterval interval) {
+		this(interval, null);
+	}
+
+	private Intervals(
+			IntInterval interval,
+			MathNumber[] thresholds) {
 		this.interval = interval;
+		this.thresholds = thresholds;
 	}
 
 	/**
@@ -90,6 +164,190 @@ public class Intervals
 	public Intervals() {
 		this(IntInterval.INFINITY);
 	}
+
+	/**
+	 * Builds the top interval of a domain whose widening, instead of jumping
+	 * to infinity, first moves unstable bounds to the given thresholds.
+	 * 
+	 * @param thresholds the thresholds
+	 * 
+	 * @return the top interval
+	 */
+	public static Intervals withThresholds(
+			Collection<Integer> thresholds) {
+		MathNumber[] sorted = new TreeSet<>(thresholds).stream().map(MathNumber::new).toArray(MathNumber[]::new);
+		return new Intervals(IntInterval.INFINITY, sorted);
+	}
+
+	/**
+	 * Builds the top interval of a domain whose widening uses the integer
+	 * constants appearing in the given program, together with their
+	 * opposites, as thresholds.
+	 * 
+	 * @param program the program to analyze
+	 * 
+	 * @return the top interval
+	 */
+	public static Intervals withThresholds(
+			Program program) {
+		Collection<Integer> constants = new TreeSet<>();
+		for (CFG cfg : program.getAllCFGs())
+			for (Statement st : cfg.getNodes())
+				collectConstants(st, constants);
+		return withThresholds(constants);
+	}
+
+	private static void collectConstants(
+			Statement st,
+			Collection<Integer> constants) {
+		if (st instanceof Literal && ((Literal<?>) st).getValue() instanceof Integer) {
+			int value = (Integer) ((Literal<?>) st).getValue();
+			constants.add(value);
+			// negative constants are parsed as negations of positive ones
+			constants.add(-value);
+		} else if (st instanceof NaryExpression)
+			for (Expression sub : ((NaryExpression) st).getSubExpressions())
+				collectConstants(sub, constants);
+		else if (st instanceof NaryStatement)
+			for (Expression sub : ((NaryStatement) st).getSubExpressions())
+				collectConstants(sub, constants);
+	}
+
+	/**
+	 * Yields the interval with the given bounds, carrying the thresholds of
+	 * this element. Domains built through {@link #withThresholds(Collection)}
+	 * should build their intervals this way, since an interval without
+	 * thresholds is widened straight to infinity.
+	 * 
+	 * @param low  the lower bound
+	 * @param high the higher bound
+	 * 
+	 * @return the interval
+	 */
+	Intervals mk(
+			MathNumber low,
+			MathNumber high) {
+		return mk(thresholds, low, high);
+	}
+
+	private static Intervals mk(
+			MathNumber[] thresholds,
+			MathNumber low,
+			MathNumber high) {
+		if (thresholds == null)
+			return of(low, high);
+		return new Intervals(new IntInterval(low, high), thresholds);
+	}
+
+	/**
+	 * Yields the thresholds to be carried by an interval built from this one
+	 * and {@code other}: either of them might have been built without
+	 * thresholds (e.g., {@link #TOP}), and the thresholds must not get lost.
+	 */
+	private MathNumber[] thresholdsWith(
+			Intervals other) {
+		return thresholds != null ? thresholds : other.thresholds;
+	}
+
+	/**
+	 * Yields the interval with the given bounds, reusing a cached instance
+	 * whenever possible. Cached instances are {@link #TOP} and the intervals
+	 * {@code [k, k]}, {@code [k, +Inf]} and {@code [-Inf, k]} with
+	 * {@code -128 <= k <= 127}.
+	 * 
+	 * @param low  the lower bound
+	 * @param high the higher bound
+	 * 
+	 * @return the interval
+	 */
+	public static Intervals of(
+			MathNumber low,
+			MathNumber high) {
+		Intervals cached = null;
+		if (low.isMinusInfinity() && high.isPlusInfinity())
+			cached = TOP;
+		else if (high.isPlusInfinity())
+			cached = lookup(ABOVE, low);
+		else if (low.isMinusInfinity())
+			cached = lookup(BELOW, high);
+		else if (low.compareTo(high) == 0)
+			cached = lookup(SINGLETONS, low);
+
+		if (cached != null) {
+			HITS.increment();
+			return cached;
+		}
+
+		MISSES.increment();
+		return new Intervals(low, high);
+	}
+
+	/**
+	 * Yields the interval with the given bounds, reusing a cached instance
+	 * whenever possible.
+	 * 
+	 * @param low  the lower bound
+	 * @param high the higher bound
+	 * 
+	 * @return the interval
+	 */
+	public static Intervals of(
+			int low,
+			int high) {
+		if (low == high && CACHE_LOW <= low && low <= CACHE_HIGH) {
+			HITS.increment();
+			return SINGLETONS[low - CACHE_LOW];
+		}
+
+		MISSES.increment();
+		return new Intervals(low, high);
+	}
+
+	private static Intervals lookup(
+			Intervals[] cache,
+			MathNumber bound) {
+		if (bound.isInfinite())
+			return null;
+
+		try {
+			long k = bound.toLong();
+			if (k < CACHE_LOW || k > CACHE_HIGH)
+				return null;
+			// toLong truncates non-integral bounds, that are not cached
+			Intervals singleton = SINGLETONS[(int) k - CACHE_LOW];
+			return singleton.interval.getLow().compareTo(bound) == 0 ? cache[(int) k - CACHE_LOW] : null;
+		} catch (MathNumberConversionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Yields the number of intervals returned by {@link #of(MathNumber, MathNumber)}
+	 * and {@link #of(int, int)} that have been served by the cache.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public static long cacheHits() {
+		return HITS.sum();
+	}
+
+	/**
+	 * Yields the number of intervals returned by {@link #of(MathNumber, MathNumber)}
+	 * and {@link #of(int, int)} that have been built since they were not cached.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public static long cacheMisses() {
+		return MISSES.sum();
+	}
+
+	/**
+	 * Resets the cache hits and misses counters.
+	 */
+	public static void resetCacheStatistics() {
+		HITS.reset();
+		MISSES.reset();
+	}
 	
 	@Override
 	public Intervals evalUnaryExpression(UnaryOperator operator, Intervals arg, ProgramPoint pp, SemanticOracle oracle)
@@ -111,9 +369,7 @@ public class Intervals
 		MathNumber minLow = interval1Low.max(interval2Low);
 		MathNumber maxHigh = interval1High.min(interval2High);
 		
-		Intervals newInterval = new Intervals(minLow, maxHigh);
-		
-		return minLow.isMinusInfinity() && maxHigh.isPlusInfinity() ? top() : newInterval;
+		return mk(thresholdsWith(other), minLow, maxHigh);
 	}
 
 	@Override
@@ -128,9 +384,7 @@ public class Intervals
 		MathNumber maxLow = interval1Low.min(interval2Low);
 		MathNumber minHigh = interval1High.max(interval2High);
 		
-		Intervals newInterval = new Intervals(maxLow, minHigh);
-		return maxLow.isMinusInfinity() && minHigh.isPlusInfinity() ? top() :
-			newInterval;
+		return mk(thresholdsWith(other), maxLow, minHigh);
 	}
 
 	@Override
@@ -143,7 +397,7 @@ public class Intervals
 	@Override
 	public Intervals top() {
 		// the top element of the lattice is [-inf, +inf]
-		return TOP;
+		return thresholds == null ? TOP : new Intervals(IntInterval.INFINITY, thresholds);
 	}
 
 	@Override
@@ -154,7 +408,7 @@ public class Intervals
 	@Override
 	public Intervals bottom() {
 		// the bottom element of the lattice is an element with a null interval 
-		return BOTTOM;
+		return thresholds == null ? BOTTOM : new Intervals(null, thresholds);
 	}
 
 	@Override
@@ -193,8 +447,7 @@ public class Intervals
 			throws SemanticException {
 		if(constant.getValue() instanceof Integer) {
 			Integer i = (Integer) constant.getValue();
-			Intervals singletonInterval = new Intervals(i,i);
-			return singletonInterval;
+			return thresholds == null ? of(i, i) : mk(new MathNumber(i), new MathNumber(i));
 		}
 		
 		return top();
@@ -218,7 +471,7 @@ public class Intervals
 			MathNumber sumLow = leftLow.add(rightLow);
 			MathNumber sumHigh = leftHigh.add(rightHigh);
 			
-			return new Intervals(sumLow, sumHigh);
+			return mk(sumLow, sumHigh);
 			
 		} else if( operator instanceof SubtractionOperator) {
 			
@@ -231,7 +484,7 @@ public class Intervals
 			MathNumber subLow = leftLow.subtract(rightLow);
 			MathNumber subHigh = leftHigh.subtract(rightHigh);
 			
-			return new Intervals(subLow, subHigh);
+			return mk(subLow, subHigh);
 			
 		} 
 		
@@ -265,22 +518,47 @@ public class Intervals
 	public Intervals wideningAux(
 			Intervals other)
 			throws SemanticException {
+		MathNumber[] thresholds = thresholdsWith(other);
 		MathNumber newLow, newHigh;
 		if (other.interval.getHigh().compareTo(interval.getHigh()) > 0)
 			//  high value is increasing 
-			newHigh = MathNumber.PLUS_INFINITY;
+			newHigh = thresholdAbove(thresholds, other.interval.getHigh());
 		else
 			newHigh = interval.getHigh();
 
 		if (other.interval.getLow().compareTo(interval.getLow()) < 0)
 			//  low value is decreasing
-			newLow = MathNumber.MINUS_INFINITY;
+			newLow = thresholdBelow(thresholds, other.interval.getLow());
 		else
 			newLow = interval.getLow();
 
-		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : new Intervals(newLow, newHigh);
+		return mk(thresholds, newLow, newHigh);
 	}
 	
+	private static MathNumber thresholdAbove(
+			MathNumber[] thresholds,
+			MathNumber bound) {
+		if (thresholds == null || bound.isInfinite())
+			return MathNumber.PLUS_INFINITY;
+		// the smallest threshold that is greater or equal to bound
+		int pos = Arrays.binarySearch(thresholds, bound, MathNumber::compareTo);
+		if (pos < 0)
+			pos = -pos - 1;
+		return pos < thresholds.length ? thresholds[pos] : MathNumber.PLUS_INFINITY;
+	}
+
+	private static MathNumber thresholdBelow(
+			MathNumber[] thresholds,
+			MathNumber bound) {
+		if (thresholds == null || bound.isInfinite())
+			return MathNumber.MINUS_INFINITY;
+		// the greatest threshold that is less or equal to bound
+		int pos = Arrays.binarySearch(thresholds, bound, MathNumber::compareTo);
+		if (pos < 0)
+			pos = -pos - 2;
+		return pos >= 0 ? thresholds[pos] : MathNumber.MINUS_INFINITY;
+	}
+
 	// logic for narrowing below
 	
 	@Override
@@ -290,7 +568,7 @@ public class Intervals
 		MathNumber newLow, newHigh;
 		newHigh = interval.getHigh().isInfinite() ? other.interval.getHigh() : interval.getHigh();
 		newLow = interval.getLow().isInfinite() ? other.interval.getLow() : interval.getLow();
-		return new Intervals(newLow, newHigh);
+		return mk(thresholdsWith(other), newLow, newHigh);
 	}
 	
 	
@@ -0,0 +1,222 @@
+package it.unive.scsr;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A minimal pull tokenizer for JSON documents, that reads one token at a time
+ * from a {@link Reader} without ever building the document in memory. Commas
+ * and colons are consumed silently, and strings followed by a colon are
+ * reported as {@link Kind#NAME}s. The tokenizer does not validate the
+ * structure of the document: it is meant to read files written by LiSA.
+ */
+final class JsonTokenizer implements Closeable {
+
+	/**
+	 * The kinds of tokens.
+	 */
+	enum Kind {
+		BEGIN_OBJECT,
+		END_OBJECT,
+		BEGIN_ARRAY,
+		END_ARRAY,
+		NAME,
+		STRING,
+		NUMBER,
+		LITERAL,
+		END
+	}
+
+	private final Reader reader;
+
+	/**
+	 * The next character to read, or {@code -2} if it has not been read yet.
+	 */
+	private int peeked = -2;
+
+	private Kind kind;
+
+	private String text;
+
+	/**
+	 * Builds the tokenizer.
+	 *
+	 * @param reader the reader to read the document from, that should be
+	 *                   buffered
+	 */
+	JsonTokenizer(
+			Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Yields the kind of the last token read.
+	 *
+	 * @return the kind
+	 */
+	Kind kind() {
+		return kind;
+	}
+
+	/**
+	 * Yields the text of the last token read: the unescaped content of names
+	 * and strings, the literal text of numbers, {@code true}, {@code false}
+	 * and {@code null}, and {@code null} for all other tokens.
+	 *
+	 * @return the text
+	 */
+	String text() {
+		return text;
+	}
+
+	/**
+	 * Reads the next token.
+	 *
+	 * @return the kind of the token
+	 *
+	 * @throws IOException if the document cannot be read, or it is malformed
+	 */
+	Kind next() throws IOException {
+		text = null;
+		int c = skipSeparators();
+		switch (c) {
+		case -1:
+			return kind = Kind.END;
+		case '{':
+			read();
+			return kind = Kind.BEGIN_OBJECT;
+		case '}':
+			read();
+			return kind = Kind.END_OBJECT;
+		case '[':
+			read();
+			return kind = Kind.BEGIN_ARRAY;
+		case ']':
+			read();
+			return kind = Kind.END_ARRAY;
+		case '"':
+			read();
+			text = string();
+			if (skipWhitespaces() == ':') {
+				read();
+				return kind = Kind.NAME;
+			}
+			return kind = Kind.STRING;
+		default:
+			text = literal();
+			return kind = c == '-' || Character.isDigit(c) ? Kind.NUMBER : Kind.LITERAL;
+		}
+	}
+
+	/**
+	 * Skips the value starting at the next token, that is a whole object or
+	 * array if the next token begins one.
+	 *
+	 * @throws IOException if the document cannot be read, or it is malformed
+	 */
+	void skipValue() throws IOException {
+		int depth = 0;
+		do
+			switch (next()) {
+			case BEGIN_OBJECT:
+			case BEGIN_ARRAY:
+				depth++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				depth--;
+				break;
+			case END:
+				return;
+			default:
+				break;
+			}
+		while (depth > 0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private int peek() throws IOException {
+		if (peeked == -2)
+			peeked = reader.read();
+		return peeked;
+	}
+
+	private int read() throws IOException {
+		int c = peek();
+		peeked = -2;
+		return c;
+	}
+
+	private int skipWhitespaces() throws IOException {
+		while (Character.isWhitespace(peek()))
+			read();
+		return peek();
+	}
+
+	private int skipSeparators() throws IOException {
+		int c;
+		while ((c = skipWhitespaces()) == ',' || c == ':')
+			read();
+		return c;
+	}
+
+	private String string() throws IOException {
+		StringBuilder result = new StringBuilder();
+		for (int c = read(); c != '"'; c = read()) {
+			if (c == -1)
+				throw new IOException("Unterminated string");
+			if (c != '\\') {
+				result.append((char) c);
+				continue;
+			}
+			c = read();
+			switch (c) {
+			case 'b':
+				result.append('\b');
+				break;
+			case 'f':
+				result.append('\f');
+				break;
+			case 'n':
+				result.append('\n');
+				break;
+			case 'r':
+				result.append('\r');
+				break;
+			case 't':
+				result.append('\t');
+				break;
+			case 'u':
+				char[] hex = new char[4];
+				for (int i = 0; i < hex.length; i++)
+					hex[i] = (char) read();
+				try {
+					result.append((char) Integer.parseInt(new String(hex), 16));
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed unicode escape: \\u" + new String(hex), e);
+				}
+				break;
+			case -1:
+				throw new IOException("Unterminated string");
+			default:
+				// \", \\ and \/
+				result.append((char) c);
+			}
+		}
+		return result.toString();
+	}
+
+	private String literal() throws IOException {
+		StringBuilder result = new StringBuilder();
+		for (int c = peek(); c != -1 && !Character.isWhitespace(c) && ",:]}".indexOf(c) < 0; c = peek())
+			result.append((char) read());
+		if (result.length() == 0)
+			throw new IOException("Unexpected character: " + (char) peek());
+		return result.toString();
+	}
+}
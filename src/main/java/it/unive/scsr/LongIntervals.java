@@ -0,0 +1,394 @@
+package it.unive.scsr;
+
+import java.util.Objects;
+
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.operator.AdditionOperator;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
+import it.unive.lisa.util.numeric.IntInterval;
+import it.unive.lisa.util.numeric.MathNumber;
+import it.unive.lisa.util.numeric.MathNumberConversionException;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+public class LongIntervals
+		// a variant of Intervals whose endpoints are primitive longs, such
+		// that:
+		// - lattice operations and arithmetic do not allocate MathNumbers
+		// - overflows, and cases not covered by the fast path, are delegated
+		// to Intervals, so that the results are always the same
+		implements
+		BaseNonRelationalValueDomain<
+				// java requires this type parameter to have this class
+				// as type in fields/methods
+				LongIntervals>, Comparable<LongIntervals> {
+
+	/**
+	 * The abstract zero ({@code [0, 0]}) element.
+	 */
+	public static final LongIntervals ZERO = new LongIntervals(0, 0);
+
+	/**
+	 * The abstract top ({@code [-Inf, +Inf]}) element.
+	 */
+	public static final LongIntervals TOP = new LongIntervals(0, true, 0, true, null, false);
+
+	/**
+	 * The abstract bottom element.
+	 */
+	public static final LongIntervals BOTTOM = new LongIntervals(0, false, 0, false, null, true);
+
+	/**
+	 * The lattice element used to evaluate expressions that overflow.
+	 */
+	private static final Intervals FALLBACK = new Intervals();
+
+	/**
+	 * The lower bound, if it is finite.
+	 */
+	private final long low;
+
+	/**
+	 * The higher bound, if it is finite.
+	 */
+	private final long high;
+
+	/**
+	 * Whether the lower bound is {@code -Inf}.
+	 */
+	private final boolean lowInfinite;
+
+	/**
+	 * Whether the higher bound is {@code +Inf}.
+	 */
+	private final boolean highInfinite;
+
+	/**
+	 * The interval represented by this element, if its bounds do not fit in
+	 * longs; {@code null} otherwise.
+	 */
+	private final IntInterval wide;
+
+	/**
+	 * Whether this is the bottom element.
+	 */
+	private final boolean isBottom;
+
+	/**
+	 * Builds the top interval.
+	 */
+	public LongIntervals() {
+		this(0, true, 0, true, null, false);
+	}
+
+	/**
+	 * Builds the interval.
+	 *
+	 * @param low  the lower bound
+	 * @param high the higher bound
+	 */
+	public LongIntervals(
+			long low,
+			long high) {
+		this(low, false, high, false, null, false);
+	}
+
+	private LongIntervals(
+			long low,
+			boolean lowInfinite,
+			long high,
+			boolean highInfinite,
+			IntInterval wide,
+			boolean isBottom) {
+		this.low = low;
+		this.lowInfinite = lowInfinite;
+		this.high = high;
+		this.highInfinite = highInfinite;
+		this.wide = wide;
+		this.isBottom = isBottom;
+	}
+
+	private static LongIntervals of(
+			long low,
+			boolean lowInfinite,
+			long high,
+			boolean highInfinite) {
+		if (lowInfinite && highInfinite)
+			return TOP;
+		// infinite bounds are stored as zero, so that equals can compare fields
+		return new LongIntervals(lowInfinite ? 0 : low, lowInfinite, highInfinite ? 0 : high, highInfinite, null,
+				false);
+	}
+
+	/**
+	 * Yields the element representing the same interval of the given one.
+	 *
+	 * @param intervals the interval
+	 *
+	 * @return the element
+	 */
+	static LongIntervals of(
+			Intervals intervals) {
+		if (intervals.isBottom())
+			return BOTTOM;
+		if (intervals.isTop())
+			return TOP;
+
+		MathNumber low = intervals.interval.getLow(), high = intervals.interval.getHigh();
+		try {
+			if ((low.isMinusInfinity() || fits(low)) && (high.isPlusInfinity() || fits(high)))
+				return of(low.isMinusInfinity() ? 0 : low.toLong(), low.isMinusInfinity(),
+						high.isPlusInfinity() ? 0 : high.toLong(), high.isPlusInfinity());
+		} catch (MathNumberConversionException e) {
+			// not representable with longs
+		}
+		return new LongIntervals(0, false, 0, false, intervals.interval, false);
+	}
+
+	private static boolean fits(
+			MathNumber number) throws MathNumberConversionException {
+		return !number.isInfinite() && new MathNumber(number.toLong()).compareTo(number) == 0;
+	}
+
+	/**
+	 * Yields the {@link Intervals} element representing the same interval of
+	 * this one.
+	 *
+	 * @return the element
+	 */
+	Intervals toIntervals() {
+		if (isBottom)
+			return Intervals.BOTTOM;
+		if (wide != null)
+			return new Intervals(wide);
+		if (isTop())
+			return Intervals.TOP;
+		return Intervals.of(lowInfinite ? MathNumber.MINUS_INFINITY : new MathNumber(low),
+				highInfinite ? MathNumber.PLUS_INFINITY : new MathNumber(high));
+	}
+
+	/**
+	 * An operation on {@link Intervals}, used when the fast path cannot be
+	 * taken.
+	 */
+	@FunctionalInterface
+	private interface Fallback {
+		Intervals apply(
+				Intervals left,
+				Intervals right)
+				throws SemanticException;
+	}
+
+	private LongIntervals fallback(
+			LongIntervals other,
+			Fallback operation)
+			throws SemanticException {
+		return of(operation.apply(toIntervals(), other.toIntervals()));
+	}
+
+	@Override
+	public LongIntervals evalUnaryExpression(
+			UnaryOperator operator,
+			LongIntervals arg,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// as in Intervals, negation is not implemented
+		return BaseNonRelationalValueDomain.super.evalUnaryExpression(operator, arg, pp, oracle);
+	}
+
+	@Override
+	public LongIntervals glbAux(
+			LongIntervals other)
+			throws SemanticException {
+		if (wide != null || other.wide != null)
+			return fallback(other, Intervals::glbAux);
+
+		boolean newLowInfinite = lowInfinite && other.lowInfinite;
+		long newLow = lowInfinite ? other.low : other.lowInfinite ? low : Math.max(low, other.low);
+		boolean newHighInfinite = highInfinite && other.highInfinite;
+		long newHigh = highInfinite ? other.high : other.highInfinite ? high : Math.min(high, other.high);
+		if (!newLowInfinite && !newHighInfinite && newLow > newHigh)
+			// disjoint intervals: let IntInterval order the bounds
+			return fallback(other, Intervals::glbAux);
+		return of(newLow, newLowInfinite, newHigh, newHighInfinite);
+	}
+
+	@Override
+	public LongIntervals lubAux(
+			LongIntervals other)
+			throws SemanticException {
+		if (wide != null || other.wide != null)
+			return fallback(other, Intervals::lubAux);
+
+		return of(Math.min(low, other.low), lowInfinite || other.lowInfinite,
+				Math.max(high, other.high), highInfinite || other.highInfinite);
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			LongIntervals other)
+			throws SemanticException {
+		if (wide != null || other.wide != null)
+			return toIntervals().lessOrEqualAux(other.toIntervals());
+
+		return (other.lowInfinite || (!lowInfinite && other.low <= low))
+				&& (other.highInfinite || (!highInfinite && high <= other.high));
+	}
+
+	@Override
+	public LongIntervals top() {
+		return TOP;
+	}
+
+	@Override
+	public boolean isTop() {
+		return !isBottom && lowInfinite && highInfinite;
+	}
+
+	@Override
+	public LongIntervals bottom() {
+		return BOTTOM;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom;
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+
+		return new StringRepresentation(toIntervals().interval.toString());
+	}
+
+	@Override
+	public int compareTo(
+			LongIntervals o) {
+		return toIntervals().compareTo(o.toIntervals());
+	}
+
+	// logic for evaluating expressions below
+
+	@Override
+	public LongIntervals evalNonNullConstant(
+			Constant constant,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (constant.getValue() instanceof Integer) {
+			Integer i = (Integer) constant.getValue();
+			return new LongIntervals(i, i);
+		}
+
+		return top();
+	}
+
+	@Override
+	public LongIntervals evalBinaryExpression(
+			BinaryOperator operator,
+			LongIntervals left,
+			LongIntervals right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (left.isBottom() || right.isBottom())
+			return bottom();
+
+		if (!(operator instanceof AdditionOperator || operator instanceof SubtractionOperator))
+			return top();
+
+		if (left.wide == null && right.wide == null)
+			try {
+				if (operator instanceof AdditionOperator)
+					return of(
+							left.lowInfinite || right.lowInfinite ? 0 : Math.addExact(left.low, right.low),
+							left.lowInfinite || right.lowInfinite,
+							left.highInfinite || right.highInfinite ? 0 : Math.addExact(left.high, right.high),
+							left.highInfinite || right.highInfinite);
+
+				// as in Intervals, [a, b] - [c, d] = [a - c, b - d]
+				if (!right.lowInfinite && !right.highInfinite) {
+					long newLow = left.lowInfinite ? 0 : Math.subtractExact(left.low, right.low);
+					long newHigh = left.highInfinite ? 0 : Math.subtractExact(left.high, right.high);
+					if (left.lowInfinite || left.highInfinite || newLow <= newHigh)
+						return of(newLow, left.lowInfinite, newHigh, left.highInfinite);
+				}
+			} catch (ArithmeticException e) {
+				// overflow: fall back to MathNumbers
+			}
+
+		return of(FALLBACK.evalBinaryExpression(operator, left.toIntervals(), right.toIntervals(), pp, oracle));
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Long.hashCode(low);
+		result = prime * result + Boolean.hashCode(lowInfinite);
+		result = prime * result + Long.hashCode(high);
+		result = prime * result + Boolean.hashCode(highInfinite);
+		result = prime * result + (wide == null ? 0 : wide.hashCode());
+		result = prime * result + Boolean.hashCode(isBottom);
+		return result;
+	}
+
+	@Override
+	public boolean equals(
+			Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LongIntervals other = (LongIntervals) obj;
+		return low == other.low && lowInfinite == other.lowInfinite && high == other.high
+				&& highInfinite == other.highInfinite && Objects.equals(wide, other.wide)
+				&& isBottom == other.isBottom;
+	}
+
+	// logic for widening below
+
+	@Override
+	public LongIntervals wideningAux(
+			LongIntervals other)
+			throws SemanticException {
+		if (wide != null || other.wide != null)
+			return fallback(other, Intervals::wideningAux);
+
+		// high value is increasing
+		boolean newHighInfinite = highInfinite || other.highInfinite || other.high > high;
+		// low value is decreasing
+		boolean newLowInfinite = lowInfinite || other.lowInfinite || other.low < low;
+		return of(newLowInfinite ? 0 : low, newLowInfinite, newHighInfinite ? 0 : high, newHighInfinite);
+	}
+
+	// logic for narrowing below
+
+	@Override
+	public LongIntervals narrowingAux(
+			LongIntervals other)
+			throws SemanticException {
+		if (wide != null || other.wide != null)
+			return fallback(other, Intervals::narrowingAux);
+
+		long newLow = lowInfinite ? other.low : low;
+		boolean newLowInfinite = lowInfinite && other.lowInfinite;
+		long newHigh = highInfinite ? other.high : high;
+		boolean newHighInfinite = highInfinite && other.highInfinite;
+		if (!newLowInfinite && !newHighInfinite && newLow > newHigh)
+			return fallback(other, Intervals::narrowingAux);
+		return of(newLow, newLowInfinite, newHigh, newHighInfinite);
+	}
+}
@@ -0,0 +1,173 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAReport;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * A runner executing several analyses of the same IMP program concurrently,
+ * one for each {@link LiSAConfiguration} (e.g., one with {@link Intervals},
+ * one with {@link Signs} and one with {@link Taint}). Each configuration must
+ * have its own working directory, where the results of its analysis are
+ * written.<br>
+ * <br>
+ * The source of the program is read and parsed once, when the runner is
+ * built, so that syntax errors are reported before any analysis starts.
+ * Parsed programs cannot be shared among concurrent analyses, however: LiSA
+ * finalizes the program it analyzes, and initializes the call graph over it,
+ * in place. Each analysis thus parses its own copy of the (already read)
+ * source: parsing is cheap compared to the analyses, and it happens on the
+ * same thread of the analysis.
+ */
+public class MultiDomainRunner {
+
+	private final String source;
+
+	private final Consumer<Program> setup;
+
+	private final List<LiSAConfiguration> configurations = new ArrayList<>();
+
+	/**
+	 * Builds the runner.
+	 *
+	 * @param source the IMP source code of the program to analyze
+	 * @param setup  the operation to execute on each parsed program before
+	 *                   analyzing it (e.g., loading annotations)
+	 *
+	 * @throws ParsingException if the program cannot be parsed
+	 */
+	public MultiDomainRunner(
+			String source,
+			Consumer<Program> setup)
+			throws ParsingException {
+		this.source = source;
+		this.setup = setup;
+		// fail early on malformed programs
+		IMPFrontend.processText(source);
+	}
+
+	/**
+	 * Builds a runner for the program contained in the given file.
+	 *
+	 * @param file  the path of the IMP file
+	 * @param setup the operation to execute on each parsed program before
+	 *                  analyzing it (e.g., loading annotations)
+	 *
+	 * @return the runner
+	 *
+	 * @throws IOException      if the file cannot be read
+	 * @throws ParsingException if the program cannot be parsed
+	 */
+	public static MultiDomainRunner fromFile(
+			String file,
+			Consumer<Program> setup)
+			throws IOException,
+			ParsingException {
+		return new MultiDomainRunner(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8), setup);
+	}
+
+	/**
+	 * Adds an analysis to execute.
+	 *
+	 * @param conf the configuration of the analysis
+	 *
+	 * @return this runner
+	 *
+	 * @throws IllegalArgumentException if the working directory of
+	 *                                      {@code conf} is already used by
+	 *                                      another configuration
+	 */
+	public MultiDomainRunner add(
+			LiSAConfiguration conf) {
+		for (LiSAConfiguration other : configurations)
+			if (Paths.get(other.workdir).toAbsolutePath().normalize()
+					.equals(Paths.get(conf.workdir).toAbsolutePath().normalize()))
+				throw new IllegalArgumentException("Working directory '" + conf.workdir + "' is already used");
+		configurations.add(conf);
+		return this;
+	}
+
+	/**
+	 * Runs all the analyses, using one thread for each available processor.
+	 *
+	 * @return the reports of the analyses, in the order in which their
+	 *             configurations have been added
+	 *
+	 * @throws AnalysisException if one of the analyses fails
+	 */
+	public List<LiSAReport> run() throws AnalysisException {
+		return run(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Runs all the analyses.
+	 *
+	 * @param parallelism the maximum number of analyses to run at the same
+	 *                        time
+	 *
+	 * @return the reports of the analyses, in the order in which their
+	 *             configurations have been added
+	 *
+	 * @throws AnalysisException if one of the analyses fails
+	 */
+	public List<LiSAReport> run(
+			int parallelism)
+			throws AnalysisException {
+		int threads = Math.max(1, Math.min(parallelism, configurations.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<LiSAReport>> running = new ArrayList<>(configurations.size());
+			for (LiSAConfiguration conf : configurations)
+				running.add(executor.submit(() -> analyze(conf)));
+
+			List<LiSAReport> reports = new ArrayList<>(running.size());
+			AnalysisException failure = null;
+			for (int i = 0; i < running.size(); i++)
+				try {
+					reports.add(running.get(i).get());
+				} catch (ExecutionException e) {
+					reports.add(null);
+					if (failure == null)
+						failure = e.getCause() instanceof AnalysisException
+								? (AnalysisException) e.getCause()
+								: new AnalysisException("Analysis in '" + configurations.get(i).workdir
+										+ "' failed", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new AnalysisException("Interrupted while waiting for the analyses", e);
+				}
+
+			if (failure != null)
+				throw failure;
+			return reports;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private LiSAReport analyze(
+			LiSAConfiguration conf)
+			throws ParsingException,
+			AnalysisException {
+		Program program = IMPFrontend.processText(source);
+		if (setup != null)
+			setup.accept(program);
+		return new LiSA(conf).run(program);
+	}
+}
@@ -0,0 +1,65 @@
+package it.unive.scsr;
+
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+
+/**
+ * The outputs generated by the evaluations of the tasks. Both profiles
+ * serialize the results of each CFG and the json report, that is all that is
+ * needed to compare the results with the expected ones: the lean profile
+ * (the default one) does not render the html graphs, that can be rendered
+ * later from the serialized results with {@link HtmlRenderer}.<br>
+ * <br>
+ * The profile is chosen through the {@value #PROPERTY} system property (e.g.,
+ * {@code ./gradlew test -Poutputs=full}).
+ */
+public enum OutputProfile {
+
+	/**
+	 * Only the serialized results and the json report.
+	 */
+	LEAN(GraphType.NONE),
+
+	/**
+	 * The serialized results, the json report, and an html graph for each
+	 * CFG.
+	 */
+	FULL(GraphType.HTML);
+
+	/**
+	 * The system property selecting the profile.
+	 */
+	public static final String PROPERTY = "scsr.outputs";
+
+	private final GraphType graphs;
+
+	private OutputProfile(
+			GraphType graphs) {
+		this.graphs = graphs;
+	}
+
+	/**
+	 * Yields the profile selected through the {@value #PROPERTY} system
+	 * property, or {@link #LEAN} if the property is not set.
+	 *
+	 * @return the profile
+	 *
+	 * @throws IllegalArgumentException if the property does not name a
+	 *                                      profile
+	 */
+	public static OutputProfile current() {
+		return valueOf(System.getProperty(PROPERTY, LEAN.name()).toUpperCase());
+	}
+
+	/**
+	 * Sets the outputs of the given configuration according to this profile.
+	 *
+	 * @param conf the configuration
+	 */
+	public void apply(
+			LiSAConfiguration conf) {
+		conf.serializeResults = true;
+		conf.jsonOutput = true;
+		conf.analysisGraphs = graphs;
+	}
+}
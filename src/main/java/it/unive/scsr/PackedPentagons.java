@@ -0,0 +1,1177 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.TernaryExpression;
+import it.unive.lisa.symbolic.value.UnaryExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.util.numeric.MathNumber;
+import it.unive.lisa.util.numeric.MathNumberConversionException;
+import it.unive.lisa.util.representation.MapRepresentation;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+/**
+ * A packed implementation of {@link Pentagons}, computing the same results
+ * with far fewer allocations. Identifiers are interned to slots of an
+ * {@link IdentifierTable}: each slot holds the endpoints of its interval as
+ * primitive longs and its upper bounds as a bitset over the same table.
+ * Slots are grouped in chunks of {@value #CHUNK}, shared between successive
+ * states and copied only when written, so that an assignment only allocates
+ * the chunks it modifies. Endpoints that do not fit in a long are kept as
+ * {@link Intervals}.<br>
+ * <br>
+ * Expressions are still evaluated by {@link Intervals} and
+ * {@link UpperBounds}, on environments holding only the identifiers they
+ * read. Operations that are neither frequent nor on explicit mappings (e.g.,
+ * scoping, or joins with a top environment) go through {@link Pentagons}.
+ */
+public class PackedPentagons implements ValueDomain<PackedPentagons>, BaseLattice<PackedPentagons> {
+
+	/**
+	 * The kinds of each of the two environments of a pentagon: the top
+	 * function, the bottom function, or an explicit mapping from identifiers
+	 * to values, where unmapped identifiers are bottom.
+	 */
+	private static final byte TOP_ENV = 0, BOTTOM_ENV = 1, MAPPED_ENV = 2;
+
+	private static final int SHIFT = 6;
+
+	private static final int CHUNK = 1 << SHIFT;
+
+	private static final int MASK = CHUNK - 1;
+
+	/**
+	 * The endpoints encoding the bottom interval. Infinite endpoints are
+	 * encoded as {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE}.
+	 */
+	private static final long EMPTY_LOW = Long.MAX_VALUE, EMPTY_HIGH = Long.MIN_VALUE;
+
+	private static final MathNumber MIN_LONG = new MathNumber(Long.MIN_VALUE);
+
+	private static final MathNumber MAX_LONG = new MathNumber(Long.MAX_VALUE);
+
+	/**
+	 * The bitset of bottom upper bounds. Top upper bounds are encoded as
+	 * {@code null}.
+	 */
+	private static final BitSet BOTTOM_BOUNDS = new BitSet();
+
+	private static final IntervalChunk[] NO_INTERVALS = new IntervalChunk[0];
+
+	private static final BoundChunk[] NO_BOUNDS = new BoundChunk[0];
+
+	/**
+	 * The table assigning slots to identifiers, shared by the whole analysis.
+	 */
+	private final IdentifierTable table;
+
+	/**
+	 * The top upper bounds over {@link #table}, used to materialize bounds.
+	 */
+	private final UpperBounds boundsLattice;
+
+	private final byte intervalsKind;
+
+	private final byte boundsKind;
+
+	private final IntervalChunk[] intervals;
+
+	private final BoundChunk[] bounds;
+
+	/**
+	 * Whether this state is known to be closed, as in {@link Pentagons}.
+	 */
+	private final boolean closed;
+
+	/**
+	 * Builds the top pentagon, with a new identifier table.
+	 */
+	public PackedPentagons() {
+		this(new IdentifierTable());
+	}
+
+	/**
+	 * Builds the top pentagon.
+	 *
+	 * @param table the table assigning slots to identifiers
+	 */
+	public PackedPentagons(
+			IdentifierTable table) {
+		this(table, new UpperBounds(table), TOP_ENV, TOP_ENV, NO_INTERVALS, NO_BOUNDS, false);
+	}
+
+	private PackedPentagons(
+			IdentifierTable table,
+			UpperBounds boundsLattice,
+			byte intervalsKind,
+			byte boundsKind,
+			IntervalChunk[] intervals,
+			BoundChunk[] bounds,
+			boolean closed) {
+		this.table = table;
+		this.boundsLattice = boundsLattice;
+		this.intervalsKind = intervalsKind;
+		this.boundsKind = boundsKind;
+		this.intervals = intervals;
+		this.bounds = bounds;
+		this.closed = closed;
+	}
+
+	@Override
+	public PackedPentagons top() {
+		if (isTop())
+			return this;
+		return new PackedPentagons(table, boundsLattice, TOP_ENV, TOP_ENV, NO_INTERVALS, NO_BOUNDS, false);
+	}
+
+	@Override
+	public boolean isTop() {
+		return intervalsKind == TOP_ENV && boundsKind == TOP_ENV;
+	}
+
+	@Override
+	public PackedPentagons bottom() {
+		if (isBottom())
+			return this;
+		return new PackedPentagons(table, boundsLattice, BOTTOM_ENV, BOTTOM_ENV, NO_INTERVALS, NO_BOUNDS, false);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return intervalsKind == BOTTOM_ENV && boundsKind == BOTTOM_ENV;
+	}
+
+	@Override
+	public PackedPentagons smallStepSemantics(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// value environments do not change without assignments
+		return this;
+	}
+
+	@Override
+	public PackedPentagons assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		Set<Identifier> read = identifiers(expression);
+		read.add(id);
+		ValueEnvironment<UpperBounds> newBounds = boundsEnv(read).assign(id, expression, pp, oracle);
+		ValueEnvironment<Intervals> newIntervals = intervalsEnv(read).assign(id, expression, pp, oracle);
+
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression be = (BinaryExpression) expression;
+			BinaryOperator op = be.getOperator();
+
+			if (op instanceof SubtractionOperator && be.getLeft() instanceof Identifier) {
+				Identifier x = (Identifier) be.getLeft();
+
+				if (be.getRight() instanceof Identifier) {
+					// r = x - y
+					Identifier y = (Identifier) be.getRight();
+					if (newBounds.getState(y).contains(x))
+						newIntervals = newIntervals.putState(id, newIntervals.getState(id)
+								.glb(new Intervals(MathNumber.ONE, MathNumber.PLUS_INFINITY)));
+				} else if (be.getRight() instanceof Constant)
+					newBounds = newBounds.putState(id, boundsState(table.indexOf(x)).add(x));
+			}
+		}
+
+		Builder builder = new Builder();
+		builder.readBounds(newBounds);
+		builder.readIntervals(newIntervals);
+		PackedPentagons result = builder.build(false);
+		if (closed && result.intervalsKind == MAPPED_ENV && result.boundsKind == MAPPED_ENV)
+			// the assignment only changed the slot of id
+			return result.closure(table.intern(id));
+		return result.closure();
+	}
+
+	@Override
+	public PackedPentagons assume(
+			ValueExpression expression,
+			ProgramPoint src,
+			ProgramPoint dest,
+			SemanticOracle oracle)
+			throws SemanticException {
+		Set<Identifier> read = identifiers(expression);
+		Builder builder = new Builder();
+		builder.readBounds(boundsEnv(read).assume(expression, src, dest, oracle));
+		builder.readIntervals(intervalsEnv(read).assume(expression, src, dest, oracle));
+		return builder.build(false);
+	}
+
+	@Override
+	public Satisfiability satisfies(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		Set<Identifier> read = identifiers(expression);
+		return intervalsEnv(read).satisfies(expression, pp, oracle)
+				.glb(boundsEnv(read).satisfies(expression, pp, oracle));
+	}
+
+	@Override
+	public PackedPentagons lubAux(
+			PackedPentagons other)
+			throws SemanticException {
+		if (!isMapped() || !other.isMapped())
+			return pack(toPentagons().lubAux(other.toPentagons()));
+
+		Builder builder = new Builder();
+		for (int slot = nextBounds(0); slot >= 0; slot = nextBounds(slot + 1))
+			builder.putBounds(slot, lubBounds(boundsBits(slot), other.boundsBits(slot)));
+		for (int slot = other.nextBounds(0); slot >= 0; slot = other.nextBounds(slot + 1))
+			if (!hasBounds(slot))
+				builder.putBounds(slot, lubBounds(BOTTOM_BOUNDS, other.boundsBits(slot)));
+
+		// bounds that hold in the other state thanks to its intervals
+		for (int slot = nextBounds(0); slot >= 0; slot = nextBounds(slot + 1))
+			builder.glbBounds(slot, other.below(slot, boundsBits(slot)));
+		for (int slot = other.nextBounds(0); slot >= 0; slot = other.nextBounds(slot + 1))
+			builder.glbBounds(slot, below(slot, other.boundsBits(slot)));
+
+		builder.joinIntervals(other, false);
+		return builder.build(false);
+	}
+
+	@Override
+	public PackedPentagons wideningAux(
+			PackedPentagons other)
+			throws SemanticException {
+		if (!isMapped() || !other.isMapped())
+			return pack(toPentagons().wideningAux(other.toPentagons()));
+
+		Builder builder = new Builder();
+		for (int slot = nextBounds(0); slot >= 0; slot = nextBounds(slot + 1))
+			builder.putBounds(slot, widenBounds(boundsBits(slot), other.boundsBits(slot)));
+		for (int slot = other.nextBounds(0); slot >= 0; slot = other.nextBounds(slot + 1))
+			if (!hasBounds(slot))
+				builder.putBounds(slot, widenBounds(BOTTOM_BOUNDS, other.boundsBits(slot)));
+
+		builder.joinIntervals(other, true);
+		return builder.build(false);
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			PackedPentagons other)
+			throws SemanticException {
+		if (!isMapped() || !other.isMapped())
+			return toPentagons().lessOrEqualAux(other.toPentagons());
+
+		for (int slot = nextInterval(0); slot >= 0; slot = nextInterval(slot + 1))
+			if (!intervalLessOrEqual(slot, other))
+				return false;
+
+		for (int slot = other.nextBounds(0); slot >= 0; slot = other.nextBounds(slot + 1)) {
+			BitSet required = other.boundsBits(slot);
+			if (required == null)
+				continue;
+			BitSet known = boundsBits(slot);
+			BitSet derived = below(slot, required);
+			for (int bound = required.nextSetBit(0); bound >= 0; bound = required.nextSetBit(bound + 1))
+				if (!(known != null && known.get(bound)) && !(derived != null && derived.get(bound)))
+					return false;
+		}
+		return true;
+	}
+
+	@Override
+	public PackedPentagons forgetIdentifier(
+			Identifier id)
+			throws SemanticException {
+		int slot = table.indexOf(id);
+		if (!hasInterval(slot) && !hasBounds(slot))
+			return this;
+		Builder builder = new Builder();
+		builder.remove(slot);
+		return builder.build(false);
+	}
+
+	@Override
+	public PackedPentagons forgetIdentifiersIf(
+			Predicate<Identifier> test)
+			throws SemanticException {
+		Builder builder = new Builder();
+		for (int slot = nextInterval(0); slot >= 0; slot = nextInterval(slot + 1))
+			if (test.test(table.get(slot)))
+				builder.remove(slot);
+		for (int slot = nextBounds(0); slot >= 0; slot = nextBounds(slot + 1))
+			if (test.test(table.get(slot)))
+				builder.remove(slot);
+		return builder.build(false);
+	}
+
+	@Override
+	public PackedPentagons pushScope(
+			ScopeToken token)
+			throws SemanticException {
+		return pack(toPentagons().pushScope(token));
+	}
+
+	@Override
+	public PackedPentagons popScope(
+			ScopeToken token)
+			throws SemanticException {
+		return pack(toPentagons().popScope(token));
+	}
+
+	@Override
+	public boolean knowsIdentifier(
+			Identifier id) {
+		int slot = table.indexOf(id);
+		return hasInterval(slot) || hasBounds(slot);
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		Map<StructuredRepresentation, StructuredRepresentation> mapping = new HashMap<>();
+		for (int slot = nextInterval(0); slot >= 0; slot = nextInterval(slot + 1))
+			mapping.put(new StringRepresentation(table.get(slot)), representation(slot));
+		for (int slot = nextBounds(0); slot >= 0; slot = nextBounds(slot + 1))
+			if (!hasInterval(slot))
+				mapping.put(new StringRepresentation(table.get(slot)), representation(slot));
+		return new MapRepresentation(mapping);
+	}
+
+	private StructuredRepresentation representation(
+			int slot) {
+		return new StringRepresentation(intervalState(slot).toString() + ", " +
+				boundsState(slot).representation());
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 31 * intervalsKind + boundsKind;
+		for (int slot = nextInterval(0); slot >= 0; slot = nextInterval(slot + 1)) {
+			IntervalChunk chunk = intervals[slot >>> SHIFT];
+			int i = slot & MASK;
+			Intervals wide = chunk.wide(i);
+			result += 31 * slot + (wide != null ? wide.hashCode()
+					: 31 * Long.hashCode(chunk.lows[i]) + Long.hashCode(chunk.highs[i]));
+		}
+		for (int slot = nextBounds(0); slot >= 0; slot = nextBounds(slot + 1))
+			result += 31 * slot + Objects.hashCode(boundsBits(slot));
+		return result;
+	}
+
+	@Override
+	public boolean equals(
+			Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PackedPentagons other = (PackedPentagons) obj;
+		if (intervalsKind != other.intervalsKind || boundsKind != other.boundsKind)
+			return false;
+
+		for (int c = 0; c < Math.max(intervals.length, other.intervals.length); c++) {
+			IntervalChunk mine = chunk(intervals, c), theirs = chunk(other.intervals, c);
+			if (mine == theirs)
+				continue;
+			long keys = mine == null ? 0 : mine.keys;
+			if (keys != (theirs == null ? 0 : theirs.keys))
+				return false;
+			for (; keys != 0; keys &= keys - 1) {
+				int i = Long.numberOfTrailingZeros(keys);
+				if (!mine.same(i, theirs, i))
+					return false;
+			}
+		}
+
+		for (int c = 0; c < Math.max(bounds.length, other.bounds.length); c++) {
+			BoundChunk mine = chunk(bounds, c), theirs = chunk(other.bounds, c);
+			if (mine == theirs)
+				continue;
+			long keys = mine == null ? 0 : mine.keys;
+			if (keys != (theirs == null ? 0 : theirs.keys))
+				return false;
+			for (; keys != 0; keys &= keys - 1) {
+				int i = Long.numberOfTrailingZeros(keys);
+				if (!Objects.equals(mine.bounds[i], theirs.bounds[i]))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+
+	/**
+	 * Yields the {@link Pentagons} holding the same information of this state.
+	 *
+	 * @return the pentagon
+	 */
+	Pentagons toPentagons() {
+		return new Pentagons(boundsEnv(null), intervalsEnv(null));
+	}
+
+	/**
+	 * Yields the packed version of the given pentagon, using the identifier
+	 * table of this state.
+	 *
+	 * @param pentagon the pentagon
+	 *
+	 * @return the packed pentagon
+	 */
+	PackedPentagons pack(
+			Pentagons pentagon) {
+		Builder builder = top().new Builder();
+		builder.readBounds(pentagon.upperbounds);
+		builder.readIntervals(pentagon.intervals);
+		return builder.build(false);
+	}
+
+	/**
+	 * Yields the closure of this state, where the bounds of each slot are
+	 * extended with all the slots whose interval lies strictly above its own.
+	 * Slots are sorted by lower bound, so that each slot finds its new bounds
+	 * with a binary search.
+	 *
+	 * @return the closed state
+	 */
+	PackedPentagons closure() {
+		List<Integer> sorted = new ArrayList<>();
+		for (int slot = nextInterval(0); slot >= 0; slot = nextInterval(slot + 1))
+			if (!isEmptyInterval(slot))
+				sorted.add(slot);
+		sorted.sort(this::compareLows);
+
+		Builder builder = new Builder();
+		for (int slot : sorted) {
+			int lo = 0, hi = sorted.size();
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (below(slot, sorted.get(mid)))
+					hi = mid;
+				else
+					lo = mid + 1;
+			}
+			BitSet closure = new BitSet();
+			for (int i = lo; i < sorted.size(); i++)
+				if (sorted.get(i) != slot)
+					closure.set(sorted.get(i));
+			if (!closure.isEmpty())
+				builder.glbBounds(slot, closure);
+		}
+		return builder.build(true);
+	}
+
+	/**
+	 * Incremental version of {@link #closure()}, as
+	 * {@link Pentagons#closure(Collection)}: assuming that the state this one
+	 * has been derived from was closed, and that the two only differ in the
+	 * given slot, only the bounds involving that slot are re-derived.
+	 *
+	 * @param changed the slot that has changed
+	 *
+	 * @return the closed state
+	 */
+	PackedPentagons closure(
+			int changed) {
+		boolean comparable = hasInterval(changed) && !isEmptyInterval(changed);
+		BitSet above = null;
+		Builder builder = new Builder();
+		for (int slot = nextInterval(0); slot >= 0; slot = nextInterval(slot + 1)) {
+			if (slot == changed || isEmptyInterval(slot))
+				continue;
+			if (comparable && below(changed, slot)) {
+				if (above == null)
+					above = new BitSet();
+				above.set(slot);
+			}
+			if (comparable && below(slot, changed)) {
+				BitSet closure = new BitSet();
+				closure.set(changed);
+				builder.glbBounds(slot, closure);
+			}
+		}
+		if (above != null)
+			builder.glbBounds(changed, above);
+		return builder.build(true);
+	}
+
+	private boolean isMapped() {
+		return intervalsKind == MAPPED_ENV && boundsKind == MAPPED_ENV;
+	}
+
+	private static <T> T chunk(
+			T[] directory,
+			int c) {
+		return c < directory.length ? directory[c] : null;
+	}
+
+	private boolean hasInterval(
+			int slot) {
+		return hasInterval(intervals, slot);
+	}
+
+	private static boolean hasInterval(
+			IntervalChunk[] directory,
+			int slot) {
+		if (slot < 0)
+			return false;
+		IntervalChunk chunk = chunk(directory, slot >>> SHIFT);
+		return chunk != null && (chunk.keys & 1L << slot) != 0;
+	}
+
+	private boolean hasBounds(
+			int slot) {
+		return hasBounds(bounds, slot);
+	}
+
+	private static boolean hasBounds(
+			BoundChunk[] directory,
+			int slot) {
+		if (slot < 0)
+			return false;
+		BoundChunk chunk = chunk(directory, slot >>> SHIFT);
+		return chunk != null && (chunk.keys & 1L << slot) != 0;
+	}
+
+	/**
+	 * Yields the first mapped slot of the intervals that is not lower than
+	 * {@code from}, or {@code -1} if there is none.
+	 */
+	private int nextInterval(
+			int from) {
+		for (int c = from >>> SHIFT; c < intervals.length; c++)
+			if (intervals[c] != null) {
+				long keys = intervals[c].keys;
+				if (c == from >>> SHIFT)
+					keys &= -1L << from;
+				if (keys != 0)
+					return (c << SHIFT) | Long.numberOfTrailingZeros(keys);
+			}
+		return -1;
+	}
+
+	/**
+	 * Yields the first mapped slot of the bounds that is not lower than
+	 * {@code from}, or {@code -1} if there is none.
+	 */
+	private int nextBounds(
+			int from) {
+		for (int c = from >>> SHIFT; c < bounds.length; c++)
+			if (bounds[c] != null) {
+				long keys = bounds[c].keys;
+				if (c == from >>> SHIFT)
+					keys &= -1L << from;
+				if (keys != 0)
+					return (c << SHIFT) | Long.numberOfTrailingZeros(keys);
+			}
+		return -1;
+	}
+
+	private boolean isEmptyInterval(
+			int slot) {
+		IntervalChunk chunk = intervals[slot >>> SHIFT];
+		int i = slot & MASK;
+		return chunk.wide(i) == null && chunk.lows[i] == EMPTY_LOW;
+	}
+
+	/**
+	 * Yields the interval of the given slot, as the environment of intervals
+	 * of {@link Pentagons} would.
+	 */
+	private Intervals intervalState(
+			int slot) {
+		if (intervalsKind == TOP_ENV)
+			return Intervals.TOP;
+		if (!hasInterval(slot))
+			return Intervals.BOTTOM;
+		return intervals[slot >>> SHIFT].get(slot & MASK);
+	}
+
+	/**
+	 * Yields the bounds of the given slot, as the environment of upper bounds
+	 * of {@link Pentagons} would. Top bounds are {@code null}.
+	 */
+	private BitSet boundsBits(
+			int slot) {
+		return boundsBits(boundsKind, bounds, slot);
+	}
+
+	private static BitSet boundsBits(
+			byte kind,
+			BoundChunk[] directory,
+			int slot) {
+		if (kind == TOP_ENV)
+			return null;
+		if (!hasBounds(directory, slot))
+			return BOTTOM_BOUNDS;
+		return directory[slot >>> SHIFT].bounds[slot & MASK];
+	}
+
+	private UpperBounds boundsState(
+			int slot) {
+		BitSet bits = boundsBits(slot);
+		if (bits == null)
+			return boundsLattice.top();
+		if (bits.isEmpty())
+			return boundsLattice.bottom();
+		return UpperBounds.of(table, bits);
+	}
+
+	/**
+	 * Yields whether the interval of {@code low} lies strictly below the one
+	 * of {@code high}. Both slots must hold non-bottom intervals.
+	 */
+	private boolean below(
+			int low,
+			int high) {
+		IntervalChunk l = intervals[low >>> SHIFT], h = intervals[high >>> SHIFT];
+		int li = low & MASK, hi = high & MASK;
+		if (l.wide(li) == null && h.wide(hi) == null)
+			return l.highs[li] < h.lows[hi];
+		return l.get(li).interval.getHigh().compareTo(h.get(hi).interval.getLow()) < 0;
+	}
+
+	/**
+	 * Yields the subset of {@code candidates} whose interval lies strictly
+	 * above the one of {@code slot} in this state, or {@code null} if it is
+	 * empty. Slots without a (non-bottom) interval are never part of the
+	 * result.
+	 */
+	private BitSet below(
+			int slot,
+			BitSet candidates) {
+		if (candidates == null || intervalsKind != MAPPED_ENV || !hasInterval(slot) || isEmptyInterval(slot))
+			return null;
+		BitSet result = null;
+		for (int bound = candidates.nextSetBit(0); bound >= 0; bound = candidates.nextSetBit(bound + 1))
+			if (hasInterval(bound) && !isEmptyInterval(bound) && below(slot, bound)) {
+				if (result == null)
+					result = new BitSet();
+				result.set(bound);
+			}
+		return result;
+	}
+
+	private int compareLows(
+			int first,
+			int second) {
+		IntervalChunk f = intervals[first >>> SHIFT], s = intervals[second >>> SHIFT];
+		int fi = first & MASK, si = second & MASK;
+		if (f.wide(fi) == null && s.wide(si) == null)
+			return Long.compare(f.lows[fi], s.lows[si]);
+		return f.get(fi).interval.getLow().compareTo(s.get(si).interval.getLow());
+	}
+
+	private boolean intervalLessOrEqual(
+			int slot,
+			PackedPentagons other)
+			throws SemanticException {
+		IntervalChunk mine = intervals[slot >>> SHIFT];
+		IntervalChunk theirs = other.hasInterval(slot) ? other.intervals[slot >>> SHIFT] : null;
+		int i = slot & MASK;
+		if (mine.wide(i) != null || (theirs != null && theirs.wide(i) != null))
+			return mine.get(i).lessOrEqual(other.intervalState(slot));
+
+		long low = mine.lows[i], high = mine.highs[i];
+		long otherLow = theirs == null ? EMPTY_LOW : theirs.lows[i];
+		long otherHigh = theirs == null ? EMPTY_HIGH : theirs.highs[i];
+		if (low == EMPTY_LOW || (otherLow == Long.MIN_VALUE && otherHigh == Long.MAX_VALUE))
+			return true;
+		if (otherLow == EMPTY_LOW)
+			return false;
+		return otherLow <= low && high <= otherHigh;
+	}
+
+	private static BitSet lubBounds(
+			BitSet bounds,
+			BitSet other) {
+		if ((other != null && other.isEmpty()) || bounds == null || bounds.equals(other))
+			return bounds;
+		if (bounds.isEmpty() || other == null)
+			return other;
+		BitSet result = (BitSet) bounds.clone();
+		result.and(other);
+		return result;
+	}
+
+	private static BitSet widenBounds(
+			BitSet bounds,
+			BitSet other) {
+		if ((other != null && other.isEmpty()) || bounds == null || bounds.equals(other))
+			return bounds;
+		if (bounds.isEmpty() || other == null)
+			return other;
+		return containsAll(other, bounds) ? other : null;
+	}
+
+	private static boolean containsAll(
+			BitSet bits,
+			BitSet other) {
+		for (int i = other.nextSetBit(0); i >= 0; i = other.nextSetBit(i + 1))
+			if (!bits.get(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Yields an environment of intervals holding the given identifiers (or all
+	 * of them, if {@code ids} is {@code null}), that behaves as the one of
+	 * {@link Pentagons} on them.
+	 */
+	private ValueEnvironment<Intervals> intervalsEnv(
+			Collection<Identifier> ids) {
+		if (intervalsKind == TOP_ENV)
+			return new ValueEnvironment<>(new Intervals()).top();
+		if (intervalsKind == BOTTOM_ENV)
+			return new ValueEnvironment<>(new Intervals()).bottom();
+		Map<Identifier, Intervals> function = new HashMap<>();
+		if (ids == null)
+			for (int slot = nextInterval(0); slot >= 0; slot = nextInterval(slot + 1))
+				function.put(table.get(slot), intervalState(slot));
+		else
+			for (Identifier id : ids) {
+				int slot = table.indexOf(id);
+				if (hasInterval(slot))
+					function.put(id, intervalState(slot));
+			}
+		return new ValueEnvironment<>(new Intervals(), function);
+	}
+
+	/**
+	 * Yields an environment of upper bounds holding the given identifiers (or
+	 * all of them, if {@code ids} is {@code null}), that behaves as the one of
+	 * {@link Pentagons} on them.
+	 */
+	private ValueEnvironment<UpperBounds> boundsEnv(
+			Collection<Identifier> ids) {
+		if (boundsKind == TOP_ENV)
+			return new ValueEnvironment<>(boundsLattice).top();
+		if (boundsKind == BOTTOM_ENV)
+			return new ValueEnvironment<>(boundsLattice).bottom();
+		Map<Identifier, UpperBounds> function = new HashMap<>();
+		if (ids == null)
+			for (int slot = nextBounds(0); slot >= 0; slot = nextBounds(slot + 1))
+				function.put(table.get(slot), boundsState(slot));
+		else
+			for (Identifier id : ids) {
+				int slot = table.indexOf(id);
+				if (hasBounds(slot))
+					function.put(id, boundsState(slot));
+			}
+		return new ValueEnvironment<>(boundsLattice, function);
+	}
+
+	private static Set<Identifier> identifiers(
+			SymbolicExpression expression) {
+		Set<Identifier> result = new HashSet<>();
+		collect(expression, result);
+		return result;
+	}
+
+	private static void collect(
+			SymbolicExpression expression,
+			Set<Identifier> result) {
+		if (expression instanceof Identifier)
+			result.add((Identifier) expression);
+		else if (expression instanceof UnaryExpression)
+			collect(((UnaryExpression) expression).getExpression(), result);
+		else if (expression instanceof BinaryExpression) {
+			collect(((BinaryExpression) expression).getLeft(), result);
+			collect(((BinaryExpression) expression).getRight(), result);
+		} else if (expression instanceof TernaryExpression) {
+			collect(((TernaryExpression) expression).getLeft(), result);
+			collect(((TernaryExpression) expression).getMiddle(), result);
+			collect(((TernaryExpression) expression).getRight(), result);
+		}
+	}
+
+	/**
+	 * A chunk of slots of the intervals. Chunks are only modified by the
+	 * {@link Builder} that created them, and are immutable afterwards.
+	 */
+	private static final class IntervalChunk {
+
+		/**
+		 * The mapped slots of this chunk.
+		 */
+		private long keys;
+
+		private final long[] lows = new long[CHUNK];
+
+		private final long[] highs = new long[CHUNK];
+
+		/**
+		 * The intervals whose endpoints do not fit in a long, or {@code null}
+		 * if there is none.
+		 */
+		private Intervals[] wide;
+
+		private Intervals wide(
+				int i) {
+			return wide == null ? null : wide[i];
+		}
+
+		private Intervals get(
+				int i) {
+			Intervals value = wide(i);
+			if (value != null)
+				return value;
+			long low = lows[i], high = highs[i];
+			if (low == EMPTY_LOW)
+				return Intervals.BOTTOM;
+			if (low == Long.MIN_VALUE && high == Long.MAX_VALUE)
+				return Intervals.TOP;
+			return Intervals.of(low == Long.MIN_VALUE ? MathNumber.MINUS_INFINITY : new MathNumber(low),
+					high == Long.MAX_VALUE ? MathNumber.PLUS_INFINITY : new MathNumber(high));
+		}
+
+		private void set(
+				int i,
+				long low,
+				long high) {
+			lows[i] = low;
+			highs[i] = high;
+			if (wide != null)
+				wide[i] = null;
+		}
+
+		private void set(
+				int i,
+				Intervals value) {
+			if (value.isBottom()) {
+				set(i, EMPTY_LOW, EMPTY_HIGH);
+				return;
+			}
+
+			MathNumber low = value.interval.getLow(), high = value.interval.getHigh();
+			try {
+				if ((low.isMinusInfinity() || fits(low)) && (high.isPlusInfinity() || fits(high))) {
+					set(i, low.isMinusInfinity() ? Long.MIN_VALUE : low.toLong(),
+							high.isPlusInfinity() ? Long.MAX_VALUE : high.toLong());
+					return;
+				}
+			} catch (MathNumberConversionException e) {
+				// not representable as a long: fall through
+			}
+
+			if (wide == null)
+				wide = new Intervals[CHUNK];
+			wide[i] = value;
+		}
+
+		private static boolean fits(
+				MathNumber number) throws MathNumberConversionException {
+			return !number.isInfinite() && number.compareTo(MIN_LONG) > 0 && number.compareTo(MAX_LONG) < 0
+					&& new MathNumber(number.toLong()).compareTo(number) == 0;
+		}
+
+		private boolean same(
+				int i,
+				IntervalChunk other,
+				int j) {
+			Intervals mine = wide(i), theirs = other.wide(j);
+			if (mine != null || theirs != null)
+				return Objects.equals(mine, theirs);
+			return lows[i] == other.lows[j] && highs[i] == other.highs[j];
+		}
+
+		private IntervalChunk copy() {
+			IntervalChunk copy = new IntervalChunk();
+			copy.keys = keys;
+			System.arraycopy(lows, 0, copy.lows, 0, CHUNK);
+			System.arraycopy(highs, 0, copy.highs, 0, CHUNK);
+			copy.wide = wide == null ? null : wide.clone();
+			return copy;
+		}
+	}
+
+	/**
+	 * A chunk of slots of the upper bounds. Chunks are only modified by the
+	 * {@link Builder} that created them, and are immutable afterwards, as are
+	 * the bitsets they contain.
+	 */
+	private static final class BoundChunk {
+
+		/**
+		 * The mapped slots of this chunk.
+		 */
+		private long keys;
+
+		/**
+		 * The bounds of each slot, where {@code null} stands for top.
+		 */
+		private final BitSet[] bounds = new BitSet[CHUNK];
+
+		private BoundChunk copy() {
+			BoundChunk copy = new BoundChunk();
+			copy.keys = keys;
+			System.arraycopy(bounds, 0, copy.bounds, 0, CHUNK);
+			return copy;
+		}
+	}
+
+	/**
+	 * A builder of states derived from this one, copying chunks on the first
+	 * write and sharing all the others. Writes follow the semantics of
+	 * {@code putState} on value environments: writing to a top or bottom
+	 * environment yields a mapping containing only the written slot.
+	 */
+	private final class Builder {
+
+		private byte intervalsKind = PackedPentagons.this.intervalsKind;
+
+		private byte boundsKind = PackedPentagons.this.boundsKind;
+
+		private IntervalChunk[] intervals = PackedPentagons.this.intervals;
+
+		private BoundChunk[] bounds = PackedPentagons.this.bounds;
+
+		/**
+		 * The chunks created by this builder, or {@code null} if the
+		 * directory is still shared.
+		 */
+		private boolean[] ownedIntervals, ownedBounds;
+
+		private PackedPentagons build(
+				boolean closed) {
+			return new PackedPentagons(table, boundsLattice, intervalsKind, boundsKind, intervals, bounds, closed);
+		}
+
+		private void resetIntervals(
+				byte kind) {
+			intervalsKind = kind;
+			intervals = NO_INTERVALS;
+			ownedIntervals = null;
+		}
+
+		private void resetBounds(
+				byte kind) {
+			boundsKind = kind;
+			bounds = NO_BOUNDS;
+			ownedBounds = null;
+		}
+
+		private IntervalChunk intervalChunk(
+				int c) {
+			if (ownedIntervals == null) {
+				intervals = Arrays.copyOf(intervals, Math.max(intervals.length, c + 1));
+				ownedIntervals = new boolean[intervals.length];
+			} else if (c >= intervals.length) {
+				intervals = Arrays.copyOf(intervals, c + 1);
+				ownedIntervals = Arrays.copyOf(ownedIntervals, c + 1);
+			}
+			if (!ownedIntervals[c]) {
+				intervals[c] = intervals[c] == null ? new IntervalChunk() : intervals[c].copy();
+				ownedIntervals[c] = true;
+			}
+			return intervals[c];
+		}
+
+		private BoundChunk boundChunk(
+				int c) {
+			if (ownedBounds == null) {
+				bounds = Arrays.copyOf(bounds, Math.max(bounds.length, c + 1));
+				ownedBounds = new boolean[bounds.length];
+			} else if (c >= bounds.length) {
+				bounds = Arrays.copyOf(bounds, c + 1);
+				ownedBounds = Arrays.copyOf(ownedBounds, c + 1);
+			}
+			if (!ownedBounds[c]) {
+				bounds[c] = bounds[c] == null ? new BoundChunk() : bounds[c].copy();
+				ownedBounds[c] = true;
+			}
+			return bounds[c];
+		}
+
+		private void putInterval(
+				int slot,
+				Intervals value) {
+			if (intervalsKind != MAPPED_ENV)
+				resetIntervals(MAPPED_ENV);
+			else if (hasInterval(intervals, slot) && intervals[slot >>> SHIFT].get(slot & MASK).equals(value))
+				return;
+			IntervalChunk chunk = intervalChunk(slot >>> SHIFT);
+			chunk.keys |= 1L << slot;
+			chunk.set(slot & MASK, value);
+		}
+
+		private void putInterval(
+				int slot,
+				long low,
+				long high) {
+			if (intervalsKind != MAPPED_ENV)
+				resetIntervals(MAPPED_ENV);
+			else if (hasInterval(intervals, slot)) {
+				IntervalChunk chunk = intervals[slot >>> SHIFT];
+				int i = slot & MASK;
+				if (chunk.wide(i) == null && chunk.lows[i] == low && chunk.highs[i] == high)
+					return;
+			}
+			IntervalChunk chunk = intervalChunk(slot >>> SHIFT);
+			chunk.keys |= 1L << slot;
+			chunk.set(slot & MASK, low, high);
+		}
+
+		private void putBounds(
+				int slot,
+				BitSet value) {
+			if (boundsKind != MAPPED_ENV)
+				resetBounds(MAPPED_ENV);
+			else if (hasBounds(bounds, slot) && Objects.equals(bounds[slot >>> SHIFT].bounds[slot & MASK], value))
+				return;
+			BoundChunk chunk = boundChunk(slot >>> SHIFT);
+			chunk.keys |= 1L << slot;
+			chunk.bounds[slot & MASK] = value;
+		}
+
+		/**
+		 * Replaces the bounds of the given slot with their glb (that is, their
+		 * union) with {@code closure}, if the latter is not {@code null}.
+		 */
+		private void glbBounds(
+				int slot,
+				BitSet closure) {
+			if (closure == null)
+				return;
+			BitSet current = boundsBits(boundsKind, bounds, slot);
+			BitSet result;
+			if (current == null)
+				result = closure;
+			else if (current.isEmpty() || containsAll(current, closure))
+				result = current;
+			else {
+				result = (BitSet) current.clone();
+				result.or(closure);
+			}
+			putBounds(slot, result);
+		}
+
+		/**
+		 * Replaces the intervals with their pointwise lub (or widening) with
+		 * the ones of {@code other}. Both states must be explicit mappings.
+		 */
+		private void joinIntervals(
+				PackedPentagons other,
+				boolean widening)
+				throws SemanticException {
+			PackedPentagons self = PackedPentagons.this;
+			for (int slot = self.nextInterval(0); slot >= 0; slot = self.nextInterval(slot + 1))
+				joinInterval(slot, other, widening);
+			for (int slot = other.nextInterval(0); slot >= 0; slot = other.nextInterval(slot + 1))
+				if (!self.hasInterval(slot))
+					joinInterval(slot, other, widening);
+		}
+
+		private void joinInterval(
+				int slot,
+				PackedPentagons other,
+				boolean widening)
+				throws SemanticException {
+			PackedPentagons self = PackedPentagons.this;
+			IntervalChunk mine = self.hasInterval(slot) ? self.intervals[slot >>> SHIFT] : null;
+			IntervalChunk theirs = other.hasInterval(slot) ? other.intervals[slot >>> SHIFT] : null;
+			int i = slot & MASK;
+			if ((mine != null && mine.wide(i) != null) || (theirs != null && theirs.wide(i) != null)) {
+				Intervals left = self.intervalState(slot), right = other.intervalState(slot);
+				putInterval(slot, widening ? left.widening(right) : left.lub(right));
+				return;
+			}
+
+			long low = mine == null ? EMPTY_LOW : mine.lows[i], high = mine == null ? EMPTY_HIGH : mine.highs[i];
+			long otherLow = theirs == null ? EMPTY_LOW : theirs.lows[i];
+			long otherHigh = theirs == null ? EMPTY_HIGH : theirs.highs[i];
+			boolean top = low == Long.MIN_VALUE && high == Long.MAX_VALUE;
+			boolean otherTop = otherLow == Long.MIN_VALUE && otherHigh == Long.MAX_VALUE;
+			if (otherLow == EMPTY_LOW || top || (low == otherLow && high == otherHigh))
+				putInterval(slot, low, high);
+			else if (low == EMPTY_LOW || otherTop)
+				putInterval(slot, otherLow, otherHigh);
+			else if (widening)
+				putInterval(slot, otherLow < low ? Long.MIN_VALUE : low, otherHigh > high ? Long.MAX_VALUE : high);
+			else
+				putInterval(slot, Math.min(low, otherLow), Math.max(high, otherHigh));
+		}
+
+		private void remove(
+				int slot) {
+			if (intervalsKind == MAPPED_ENV && hasInterval(intervals, slot)) {
+				IntervalChunk chunk = intervalChunk(slot >>> SHIFT);
+				chunk.keys &= ~(1L << slot);
+				chunk.set(slot & MASK, 0, 0);
+			}
+			if (boundsKind == MAPPED_ENV && hasBounds(bounds, slot)) {
+				BoundChunk chunk = boundChunk(slot >>> SHIFT);
+				chunk.keys &= ~(1L << slot);
+				chunk.bounds[slot & MASK] = null;
+			}
+		}
+
+		private void readIntervals(
+				ValueEnvironment<Intervals> env) {
+			if (env.isTop())
+				resetIntervals(TOP_ENV);
+			else if (env.isBottom())
+				resetIntervals(BOTTOM_ENV);
+			else {
+				if (intervalsKind != MAPPED_ENV)
+					resetIntervals(MAPPED_ENV);
+				for (Identifier id : env.getKeys())
+					putInterval(table.intern(id), env.getState(id));
+			}
+		}
+
+		private void readBounds(
+				ValueEnvironment<UpperBounds> env) {
+			if (env.isTop())
+				resetBounds(TOP_ENV);
+			else if (env.isBottom())
+				resetBounds(BOTTOM_ENV);
+			else {
+				if (boundsKind != MAPPED_ENV)
+					resetBounds(MAPPED_ENV);
+				for (Identifier id : env.getKeys()) {
+					UpperBounds value = env.getState(id);
+					putBounds(table.intern(id), value.isTop() ? null : value.bitsIn(table));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,601 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.taint.BaseTaint;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.PushAny;
+import it.unive.lisa.symbolic.value.TernaryExpression;
+import it.unive.lisa.symbolic.value.UnaryExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+/**
+ * A {@link ValueEnvironment} specialized for taint domains, that stores the
+ * taintedness of each variable in two bits of a {@code long[]} instead of a
+ * map entry. Variables are interned once, and shared by all the environments
+ * stemming from the same instance (through {@link #top()},
+ * {@link #bottom()} and the semantic operations): the {@code i}-th variable
+ * occupies bits {@code 2i} and {@code 2i + 1}, and the bits are
+ * <ul>
+ * <li>{@code 00} if the variable is bottom, or it is not in the
+ * environment,</li>
+ * <li>{@code 01} if it is clean,</li>
+ * <li>{@code 10} if it is always tainted,</li>
+ * <li>{@code 11} if it is top.</li>
+ * </ul>
+ * With this encoding, lub, glb and the ordering among environments become
+ * bitwise operations on whole words. This only holds for domains that are
+ * sub-lattices of bottom &lt; clean, tainted &lt; top, where widening is the
+ * lub, as {@link Taint}, {@link DefiniteTaint} and
+ * {@link DefiniteTaintSolution}.<br>
+ * <br>
+ * Variables that are not annotated are evaluated by decoding their bits, while
+ * other expressions are evaluated by the domain on a {@link ValueEnvironment}
+ * holding only the variables they contain. The environment is printed as the
+ * equivalent {@link ValueEnvironment}, except that variables mapped to bottom
+ * are not shown, as they are not distinguished from missing ones. Taint
+ * checkers can query the environment through {@link #eval}, as with
+ * {@code new BaseTaintChecker<>(policy, indexed, PackedTaintEnvironment::eval)}.
+ *
+ * @param <T> the type of taint domain
+ */
+public class PackedTaintEnvironment<T extends BaseTaint<T>> implements ValueDomain<PackedTaintEnvironment<T>> {
+
+	private static final long[] EMPTY = new long[0];
+
+	private static final int BOTTOM = 0b00;
+
+	private static final int CLEAN = 0b01;
+
+	private static final int TAINTED = 0b10;
+
+	private static final int TOP = 0b11;
+
+	private final Layout<T> layout;
+
+	/**
+	 * The codes of the variables, with no trailing zero words.
+	 */
+	private final long[] bits;
+
+	private final boolean isTop;
+
+	private final boolean isBottom;
+
+	/**
+	 * Builds an empty environment, that is top (or bottom) if the given
+	 * instance of the domain is, as it happens for {@link ValueEnvironment}s.
+	 *
+	 * @param domain a singleton instance of the taint domain
+	 */
+	public PackedTaintEnvironment(
+			T domain) {
+		this(new Layout<>(domain), EMPTY, domain.isTop(), domain.isBottom());
+	}
+
+	private PackedTaintEnvironment(
+			Layout<T> layout,
+			long[] bits,
+			boolean isTop,
+			boolean isBottom) {
+		this.layout = layout;
+		this.bits = bits;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	private PackedTaintEnvironment<T> mk(
+			long[] bits) {
+		return new PackedTaintEnvironment<>(layout, bits, false, false);
+	}
+
+	/**
+	 * Yields the state of the given variable.
+	 *
+	 * @param id the variable
+	 *
+	 * @return the state of {@code id} (bottom if it is not in the environment)
+	 */
+	public T getState(
+			Identifier id) {
+		if (isBottom)
+			return layout.domain.bottom();
+		if (isTop)
+			return layout.domain.top();
+		return layout.decode(code(bits, layout.indexOf(id)));
+	}
+
+	/**
+	 * Yields the {@link ValueEnvironment} equivalent to this environment.
+	 *
+	 * @return the environment
+	 */
+	public ValueEnvironment<T> toValueEnvironment() {
+		ValueEnvironment<T> env = new ValueEnvironment<>(layout.domain);
+		if (isBottom)
+			return env.bottom();
+		if (isTop)
+			return env.top();
+
+		Map<Identifier, T> function = new HashMap<>();
+		for (int w = 0; w < bits.length; w++)
+			for (long word = bits[w]; word != 0; word = clearLowest(word)) {
+				int slot = Long.numberOfTrailingZeros(word) >>> 1;
+				function.put(layout.identifier(w * 32 + slot), layout.decode((int) (word >>> (slot * 2)) & TOP));
+			}
+		return new ValueEnvironment<>(layout.domain, function);
+	}
+
+	/**
+	 * Evaluates the given expression in this environment.
+	 *
+	 * @param expression the expression
+	 * @param pp         the program point where the evaluation happens
+	 * @param oracle     the oracle for inter-domain communication
+	 *
+	 * @return the value of {@code expression}
+	 *
+	 * @throws SemanticException if an error happens during the evaluation
+	 */
+	public T eval(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (expression instanceof Identifier && ((Identifier) expression).getAnnotations().isEmpty())
+			// what BaseTaint yields for variables that are not sources or
+			// sanitizers, without restricting the environment
+			return getState((Identifier) expression);
+		return layout.domain.eval(expression, restrict(expression), pp, oracle);
+	}
+
+	/**
+	 * Yields a {@link ValueEnvironment} that maps the variables of the given
+	 * expression as this environment does. No map is built if none of the
+	 * variables is in this environment (e.g., for constants).
+	 */
+	private ValueEnvironment<T> restrict(
+			ValueExpression expression) {
+		if (isTop || isBottom)
+			return toValueEnvironment();
+
+		Map<Identifier, T> function = collect(expression, Collections.emptyMap());
+		if (function == null)
+			return toValueEnvironment();
+		if (function.isEmpty())
+			return layout.empty;
+		return new ValueEnvironment<>(layout.domain, function);
+	}
+
+	/**
+	 * Adds the variables of the given expression to the given function,
+	 * yielding the resulting function (a new map if the given one is empty),
+	 * or {@code null} if the expression might contain variables that cannot
+	 * be reached.
+	 */
+	private Map<Identifier, T> collect(
+			SymbolicExpression expression,
+			Map<Identifier, T> function) {
+		if (expression instanceof Identifier) {
+			Identifier id = (Identifier) expression;
+			int code = code(bits, layout.indexOf(id));
+			if (code == BOTTOM)
+				return function;
+			Map<Identifier, T> result = function.isEmpty() ? new HashMap<>() : function;
+			result.put(id, layout.decode(code));
+			return result;
+		}
+		if (expression instanceof Constant || expression instanceof PushAny)
+			return function;
+		if (expression instanceof UnaryExpression)
+			return collect(((UnaryExpression) expression).getExpression(), function);
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression binary = (BinaryExpression) expression;
+			Map<Identifier, T> left = collect(binary.getLeft(), function);
+			return left == null ? null : collect(binary.getRight(), left);
+		}
+		if (expression instanceof TernaryExpression) {
+			TernaryExpression ternary = (TernaryExpression) expression;
+			Map<Identifier, T> left = collect(ternary.getLeft(), function);
+			Map<Identifier, T> middle = left == null ? null : collect(ternary.getMiddle(), left);
+			return middle == null ? null : collect(ternary.getRight(), middle);
+		}
+		return null;
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom)
+			return this;
+		T domain = layout.domain;
+		if (!domain.canProcess(expression, pp, oracle) || !domain.tracksIdentifiers(id, pp, oracle))
+			return this;
+
+		int index = layout.index(id);
+		int code = layout.encode(eval(expression, pp, oracle));
+		long[] current = isTop ? EMPTY : bits;
+		if (id.isWeak())
+			// weak assignment: lub with the previous value
+			code |= code(current, index);
+		return mk(with(current, index, code));
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> smallStepSemantics(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// environments do not change without assignments
+		return this;
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> assume(
+			ValueExpression expression,
+			ProgramPoint src,
+			ProgramPoint dest,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom || !layout.domain.canProcess(expression, src, oracle))
+			return this;
+
+		ValueEnvironment<T> restricted = restrict(expression);
+		ValueEnvironment<T> result = layout.domain.assume(restricted, expression, src, dest, oracle);
+		if (result.isBottom())
+			return bottom();
+		if (isTop || result.isTop() || result.equals(restricted))
+			return this;
+
+		long[] refined = bits;
+		for (Map.Entry<Identifier, T> entry : result)
+			refined = with(refined, layout.index(entry.getKey()), layout.encode(entry.getValue()));
+		return mk(refined);
+	}
+
+	@Override
+	public Satisfiability satisfies(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom)
+			return Satisfiability.BOTTOM;
+		return layout.domain.satisfies(expression, restrict(expression), pp, oracle);
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> forgetIdentifier(
+			Identifier id)
+			throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+		int index = layout.indexOf(id);
+		if (code(bits, index) == BOTTOM)
+			return this;
+		return mk(with(bits, index, BOTTOM));
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> forgetIdentifiersIf(
+			Predicate<Identifier> test)
+			throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+
+		long[] result = bits;
+		for (int w = 0; w < bits.length; w++)
+			for (long word = bits[w]; word != 0; word = clearLowest(word)) {
+				int index = w * 32 + (Long.numberOfTrailingZeros(word) >>> 1);
+				if (test.test(layout.identifier(index)))
+					result = with(result, index, BOTTOM);
+			}
+		return result == bits ? this : mk(result);
+	}
+
+	@Override
+	public boolean knowsIdentifier(
+			Identifier id) {
+		return !isTop && !isBottom && code(bits, layout.indexOf(id)) != BOTTOM;
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> pushScope(
+			ScopeToken token)
+			throws SemanticException {
+		return lift(token, true);
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> popScope(
+			ScopeToken token)
+			throws SemanticException {
+		return lift(token, false);
+	}
+
+	/**
+	 * Replaces each variable with its version in the inner (if {@code push}
+	 * holds) or outer scope, dropping the ones that do not exist there.
+	 */
+	private PackedTaintEnvironment<T> lift(
+			ScopeToken token,
+			boolean push)
+			throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+
+		long[] result = EMPTY;
+		for (int w = 0; w < bits.length; w++)
+			for (long word = bits[w]; word != 0; word = clearLowest(word)) {
+				int slot = Long.numberOfTrailingZeros(word) >>> 1;
+				Identifier id = layout.identifier(w * 32 + slot);
+				Identifier lifted = push ? id.pushScope(token) : id.popScope(token);
+				if (lifted != null)
+					result = with(result, layout.index(lifted), (int) (word >>> (slot * 2)) & TOP);
+			}
+		return mk(result);
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> lub(
+			PackedTaintEnvironment<T> other)
+			throws SemanticException {
+		if (other == null || other.isBottom || isTop || this == other)
+			return this;
+		if (isBottom || other.isTop)
+			return other;
+		return mk(or(bits, other.bits));
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> glb(
+			PackedTaintEnvironment<T> other)
+			throws SemanticException {
+		if (other == null || isBottom || other.isTop || this == other)
+			return this;
+		if (isTop || other.isBottom)
+			return other;
+		return mk(and(bits, other.bits));
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> widening(
+			PackedTaintEnvironment<T> other)
+			throws SemanticException {
+		// taint domains have finite height
+		return lub(other);
+	}
+
+	@Override
+	public boolean lessOrEqual(
+			PackedTaintEnvironment<T> other)
+			throws SemanticException {
+		if (other == null)
+			return false;
+		if (this == other || isBottom || other.isTop)
+			return true;
+		if (isTop || other.isBottom)
+			return false;
+		for (int w = 0; w < bits.length; w++)
+			if ((bits[w] & ~(w < other.bits.length ? other.bits[w] : 0L)) != 0)
+				return false;
+		return true;
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> top() {
+		return new PackedTaintEnvironment<>(layout, EMPTY, true, false);
+	}
+
+	@Override
+	public PackedTaintEnvironment<T> bottom() {
+		return new PackedTaintEnvironment<>(layout, EMPTY, false, true);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom;
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		if (isBottom)
+			return Lattice.bottomRepresentation();
+		if (isTop)
+			return Lattice.topRepresentation();
+		return toValueEnvironment().representation();
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(bits) + (isTop ? 1 : isBottom ? 2 : 0);
+	}
+
+	@Override
+	public boolean equals(
+			Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		PackedTaintEnvironment<?> other = (PackedTaintEnvironment<?>) obj;
+		return isTop == other.isTop
+				&& isBottom == other.isBottom
+				&& layout == other.layout
+				&& Arrays.equals(bits, other.bits);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+
+	private static long clearLowest(
+			long word) {
+		// clears the two bits of the lowest variable in the word
+		return word & ~(0b11L << (Long.numberOfTrailingZeros(word) & ~1));
+	}
+
+	private static int code(
+			long[] bits,
+			int index) {
+		if (index < 0 || index / 32 >= bits.length)
+			return BOTTOM;
+		return (int) (bits[index / 32] >>> (index % 32 * 2)) & TOP;
+	}
+
+	private static long[] with(
+			long[] bits,
+			int index,
+			int code) {
+		int word = index / 32;
+		if (word >= bits.length && code == BOTTOM)
+			return bits;
+		long[] result = Arrays.copyOf(bits, Math.max(bits.length, word + 1));
+		int shift = index % 32 * 2;
+		result[word] = result[word] & ~(0b11L << shift) | (long) code << shift;
+		return trim(result);
+	}
+
+	private static long[] or(
+			long[] left,
+			long[] right) {
+		long[] longer = left.length >= right.length ? left : right;
+		long[] shorter = longer == left ? right : left;
+		long[] result = longer.clone();
+		for (int w = 0; w < shorter.length; w++)
+			result[w] |= shorter[w];
+		return result;
+	}
+
+	private static long[] and(
+			long[] left,
+			long[] right) {
+		long[] result = new long[Math.min(left.length, right.length)];
+		for (int w = 0; w < result.length; w++)
+			result[w] = left[w] & right[w];
+		return trim(result);
+	}
+
+	private static long[] trim(
+			long[] bits) {
+		int length = bits.length;
+		while (length > 0 && bits[length - 1] == 0)
+			length--;
+		return length == 0 ? EMPTY : length == bits.length ? bits : Arrays.copyOf(bits, length);
+	}
+
+	/**
+	 * The variables and the lattice elements shared by all the environments
+	 * stemming from the same instance. Environments might be used by
+	 * concurrent fixpoints, so interning is thread-safe.
+	 */
+	private static final class Layout<T extends BaseTaint<T>> {
+
+		private final T domain;
+
+		/**
+		 * The environment mapping no variable, used to evaluate expressions
+		 * without variables.
+		 */
+		private final ValueEnvironment<T> empty;
+
+		private final Map<Identifier, Integer> indexes = new ConcurrentHashMap<>();
+
+		private volatile Identifier[] identifiers = new Identifier[64];
+
+		private int size;
+
+		/**
+		 * The clean and tainted elements, indexed by their code, stored the
+		 * first time they are encoded (codes cannot be produced otherwise).
+		 */
+		private final AtomicReferenceArray<T> elements = new AtomicReferenceArray<>(4);
+
+		private Layout(
+				T domain) {
+			this.domain = domain;
+			this.empty = new ValueEnvironment<>(domain, Collections.emptyMap());
+		}
+
+		private int indexOf(
+				Identifier id) {
+			Integer index = indexes.get(id);
+			return index == null ? -1 : index;
+		}
+
+		private int index(
+				Identifier id) {
+			Integer index = indexes.get(id);
+			return index == null ? intern(id) : index;
+		}
+
+		private synchronized int intern(
+				Identifier id) {
+			Integer index = indexes.get(id);
+			if (index != null)
+				return index;
+			if (size == identifiers.length)
+				identifiers = Arrays.copyOf(identifiers, size * 2);
+			identifiers[size] = id;
+			indexes.put(id, size);
+			return size++;
+		}
+
+		private Identifier identifier(
+				int index) {
+			return identifiers[index];
+		}
+
+		private int encode(
+				T value) {
+			if (value.isBottom())
+				return BOTTOM;
+			if (value.isTop())
+				return TOP;
+			int code = value.isAlwaysTainted() ? TAINTED : CLEAN;
+			elements.compareAndSet(code, null, value);
+			return code;
+		}
+
+		private T decode(
+				int code) {
+			switch (code) {
+			case BOTTOM:
+				return domain.bottom();
+			case TOP:
+				return domain.top();
+			default:
+				return elements.get(code);
+			}
+		}
+	}
+}
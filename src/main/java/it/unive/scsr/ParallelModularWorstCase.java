@@ -0,0 +1,228 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.conf.FixpointConfiguration;
+import it.unive.lisa.interprocedural.CFGResults;
+import it.unive.lisa.interprocedural.FixpointResults;
+import it.unive.lisa.interprocedural.InterproceduralAnalysisException;
+import it.unive.lisa.interprocedural.ModularWorstCase;
+import it.unive.lisa.interprocedural.OpenCallPolicy;
+import it.unive.lisa.interprocedural.ScopeId;
+import it.unive.lisa.interprocedural.UniqueScope;
+import it.unive.lisa.interprocedural.callgraph.CallGraph;
+import it.unive.lisa.program.Application;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.PushAny;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.util.collections.workset.WorkingSet;
+import it.unive.lisa.util.datastructures.graph.algorithms.FixpointException;
+
+/**
+ * A {@link ModularWorstCase} analysis that computes the fixpoints of the CFGs
+ * of the program concurrently, on a {@link ForkJoinPool}. Since the modular
+ * worst case analysis never looks into the callees of a call, the fixpoint of
+ * each CFG only depends on the CFG itself: the CFGs are thus split into
+ * partitions, each analyzed on its own thread, and the results are then merged
+ * in the order used by the sequential analysis. As the whole run still happens
+ * inside LiSA, dumped results, checks and warnings, and the report are the
+ * same as the ones of the sequential analysis.<br>
+ * <br>
+ * To use it, set
+ * {@code conf.interproceduralAnalysis = new ParallelModularWorstCase<>()}.
+ * The abstract domains must be safe to use from multiple threads: this is the
+ * case of the immutable domains of this project, and of the ones sharing
+ * state across analyses: {@link Intervals} counts its cache hits with
+ * {@link java.util.concurrent.atomic.LongAdder}s, and
+ * {@link BitVectorDataflowDomain} interns its facts in a {@link FactTable}
+ * whose lookups never block.
+ *
+ * @param <A> the type of {@link AbstractState} computed by the analysis
+ */
+public class ParallelModularWorstCase<A extends AbstractState<A>> extends ModularWorstCase<A> {
+
+	private static final ScopeId ID = new UniqueScope();
+
+	private final int parallelism;
+
+	private Application app;
+
+	private FixpointResults<A> results;
+
+	private Map<CFG, AnalyzedCFG<A>> analyzed;
+
+	/**
+	 * Builds the analysis, using one thread for each available processor.
+	 */
+	public ParallelModularWorstCase() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Builds the analysis.
+	 *
+	 * @param parallelism the number of threads to use
+	 */
+	public ParallelModularWorstCase(
+			int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public void init(
+			Application app,
+			CallGraph callgraph,
+			OpenCallPolicy policy)
+			throws InterproceduralAnalysisException {
+		super.init(app, callgraph, policy);
+		this.app = app;
+	}
+
+	@Override
+	public void fixpoint(
+			AnalysisState<A> entryState,
+			Class<? extends WorkingSet<Statement>> fixpointWorkingSet,
+			FixpointConfiguration conf)
+			throws FixpointException {
+		// new fixpoint iteration: restart
+		results = null;
+		analyzed = new ConcurrentHashMap<>();
+
+		List<CFG> all = new ArrayList<>(app.getAllCFGs());
+		all.sort(Comparator.comparing(cfg -> cfg.getDescriptor().getFullSignatureWithParNames()));
+
+		AtomicReference<FixpointException> failure = new AtomicReference<>();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new Partition(all, 0, all.size(), entryState, fixpointWorkingSet, conf, failure));
+		} finally {
+			pool.shutdown();
+		}
+		if (failure.get() != null)
+			throw failure.get();
+
+		// merged sequentially, in the same order of the sequential analysis
+		for (CFG cfg : all)
+			try {
+				AnalyzedCFG<A> result = analyzed.get(cfg);
+				if (results == null)
+					results = new FixpointResults<>(new CFGResults<>(result).top());
+				results.putResult(cfg, ID, result);
+			} catch (SemanticException e) {
+				throw new FixpointException("Error while storing the results of " + cfg, e);
+			}
+	}
+
+	@Override
+	public Collection<AnalyzedCFG<A>> getAnalysisResultsOf(
+			CFG cfg) {
+		AnalyzedCFG<A> result = analyzed == null ? null : analyzed.get(cfg);
+		return result == null ? Collections.emptySet() : Collections.singleton(result);
+	}
+
+	@Override
+	public FixpointResults<A> getFixpointResults() {
+		return results;
+	}
+
+	private AnalyzedCFG<A> analyze(
+			CFG cfg,
+			AnalysisState<A> entryState,
+			Class<? extends WorkingSet<Statement>> fixpointWorkingSet,
+			FixpointConfiguration conf)
+			throws FixpointException {
+		AnalysisState<A> prepared = entryState;
+		try {
+			for (Parameter arg : cfg.getDescriptor().getFormals()) {
+				Variable id = new Variable(arg.getStaticType(), arg.getName(), arg.getAnnotations(),
+						arg.getLocation());
+				prepared = prepared.assign(id, new PushAny(arg.getStaticType(), arg.getLocation()),
+						cfg.getGenericProgramPoint());
+			}
+		} catch (SemanticException e) {
+			throw new FixpointException("Error while creating the entrystate for " + cfg, e);
+		}
+		return cfg.fixpoint(prepared, this, WorkingSet.of(fixpointWorkingSet), conf, ID);
+	}
+
+	/**
+	 * The task analyzing the CFGs between {@code from} (inclusive) and
+	 * {@code to} (exclusive), splitting them in halves until each task
+	 * analyzes a single CFG. The first failure is recorded, and all the tasks
+	 * that have not started yet skip their CFGs.
+	 */
+	private class Partition extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<CFG> cfgs;
+
+		private final int from;
+
+		private final int to;
+
+		private final AnalysisState<A> entryState;
+
+		private final Class<? extends WorkingSet<Statement>> fixpointWorkingSet;
+
+		private final FixpointConfiguration conf;
+
+		private final AtomicReference<FixpointException> failure;
+
+		private Partition(
+				List<CFG> cfgs,
+				int from,
+				int to,
+				AnalysisState<A> entryState,
+				Class<? extends WorkingSet<Statement>> fixpointWorkingSet,
+				FixpointConfiguration conf,
+				AtomicReference<FixpointException> failure) {
+			this.cfgs = cfgs;
+			this.from = from;
+			this.to = to;
+			this.entryState = entryState;
+			this.fixpointWorkingSet = fixpointWorkingSet;
+			this.conf = conf;
+			this.failure = failure;
+		}
+
+		@Override
+		protected void compute() {
+			if (failure.get() != null)
+				return;
+
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Partition(cfgs, from, mid, entryState, fixpointWorkingSet, conf, failure),
+						new Partition(cfgs, mid, to, entryState, fixpointWorkingSet, conf, failure));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				CFG cfg = cfgs.get(i);
+				try {
+					analyzed.put(cfg, analyze(cfg, entryState, fixpointWorkingSet, conf));
+				} catch (FixpointException e) {
+					failure.compareAndSet(null, e);
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, new FixpointException("Error while analyzing " + cfg, e));
+				}
+			}
+		}
+	}
+}
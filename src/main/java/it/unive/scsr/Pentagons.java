@@ -1,5 +1,7 @@
 package it.unive.scsr;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -39,22 +41,91 @@ public class Pentagons
 	ValueEnvironment<UpperBounds> upperbounds;
 	ValueEnvironment<Intervals> intervals;
 	
+	/**
+	 * Whether assignments re-derive only the strict upper bounds involving the
+	 * assigned identifier instead of recomputing the whole closure.
+	 */
+	private final boolean incremental;
+	
+	/**
+	 * Whether this state is known to be closed, that is, {@link #closure()}
+	 * would return a state equal to this one. Incremental closures can only
+	 * start from closed states.
+	 */
+	private final boolean closed;
+	
+	/**
+	 * The lazily computed index of {@link #intervals}, sorted by lower bound.
+	 */
+	private EndpointIndex index;
+	
 	
 	public Pentagons() {
-		this.upperbounds = new ValueEnvironment<UpperBounds>(new UpperBounds(true)).top();
-		this.intervals = new ValueEnvironment<Intervals>(new Intervals()).top();
+		this(false);
+	}
+	
+	/**
+	 * Builds the top pentagon.
+	 * 
+	 * @param incremental {@code true} if assignments should update the closure
+	 *                        incrementally; otherwise, {@code false}.
+	 */
+	public Pentagons(boolean incremental) {
+		this(incremental, false);
+	}
+	
+	/**
+	 * Builds the top pentagon.
+	 * 
+	 * @param incremental {@code true} if assignments should update the closure
+	 *                        incrementally; otherwise, {@code false}.
+	 * @param bitsets     {@code true} if upper bounds should be stored as
+	 *                        bitsets over a table of identifiers shared by the
+	 *                        whole analysis; otherwise, {@code false}.
+	 */
+	public Pentagons(boolean incremental, boolean bitsets) {
+		this(new Intervals(), incremental, bitsets);
+	}
+	
+	/**
+	 * Builds the top pentagon, whose intervals are elements of the given
+	 * domain (e.g., one built through
+	 * {@link Intervals#withThresholds(it.unive.lisa.program.Program)}).
+	 * 
+	 * @param intervals   the top interval of the domain to use
+	 * @param incremental {@code true} if assignments should update the closure
+	 *                        incrementally; otherwise, {@code false}.
+	 * @param bitsets     {@code true} if upper bounds should be stored as
+	 *                        bitsets over a table of identifiers shared by the
+	 *                        whole analysis; otherwise, {@code false}.
+	 */
+	public Pentagons(Intervals intervals, boolean incremental, boolean bitsets) {
+		this(new ValueEnvironment<UpperBounds>(
+				bitsets ? new UpperBounds(new IdentifierTable()) : new UpperBounds(true)).top(),
+				new ValueEnvironment<Intervals>(intervals).top(), incremental, false);
 	}
 	
 	public Pentagons(ValueEnvironment<UpperBounds> upperbounds, ValueEnvironment<Intervals> intervals) {
+		this(upperbounds, intervals, false, false);
+	}
+	
+	private Pentagons(ValueEnvironment<UpperBounds> upperbounds, ValueEnvironment<Intervals> intervals,
+			boolean incremental, boolean closed) {
 		this.upperbounds = upperbounds;
 		this.intervals = intervals;
+		this.incremental = incremental;
+		this.closed = closed;
+	}
+	
+	private Pentagons mk(ValueEnvironment<UpperBounds> upperbounds, ValueEnvironment<Intervals> intervals) {
+		return new Pentagons(upperbounds, intervals, incremental, false);
 	}
 	
 	
 	@Override
 	public Pentagons top() {
 		
-		return new Pentagons(upperbounds.top(),intervals.top());
+		return mk(upperbounds.top(),intervals.top());
 	}
 	
 	@Override
@@ -65,7 +136,7 @@ public class Pentagons
 
 	@Override
 	public Pentagons bottom() {
-		return new Pentagons(upperbounds.bottom(),intervals.bottom());
+		return mk(upperbounds.bottom(),intervals.bottom());
 	}
 	
 	@Override
@@ -76,13 +147,18 @@ public class Pentagons
 	@Override
 	public Pentagons smallStepSemantics(ValueExpression expression, ProgramPoint pp, SemanticOracle oracle)
 			throws SemanticException {
-		return new Pentagons(upperbounds.smallStepSemantics(expression, pp, oracle),intervals.smallStepSemantics(expression, pp, oracle));
+		ValueEnvironment<UpperBounds> newBounds = upperbounds.smallStepSemantics(expression, pp, oracle);
+		ValueEnvironment<Intervals> newIntervals = intervals.smallStepSemantics(expression, pp, oracle);
+		if (newBounds == upperbounds && newIntervals == intervals)
+			// nothing changed: keep this state, so that it stays closed
+			return this;
+		return mk(newBounds, newIntervals);
 	}
 
 	@Override
 	public Pentagons assume(ValueExpression expression, ProgramPoint src, ProgramPoint dest, SemanticOracle oracle)
 			throws SemanticException {
-		return new Pentagons(upperbounds.assume(expression, src, dest, oracle), intervals.assume(expression, src, dest, oracle));
+		return mk(upperbounds.assume(expression, src, dest, oracle), intervals.assume(expression, src, dest, oracle));
 	}
 	
 	
@@ -90,7 +166,7 @@ public class Pentagons
 	public Pentagons wideningAux(
 			Pentagons other)
 			throws SemanticException {
-		return new Pentagons(upperbounds.wideningAux(other.upperbounds), intervals.widening(other.intervals));
+		return mk(upperbounds.wideningAux(other.upperbounds), intervals.widening(other.intervals));
 
 	}
 	
@@ -109,7 +185,7 @@ public class Pentagons
 			if (!closure.isEmpty())
 				// glb is the union
 				newBounds = newBounds.putState(entry.getKey(),
-						newBounds.getState(entry.getKey()).glb(new UpperBounds(closure)));
+						newBounds.getState(entry.getKey()).glb(upperbounds.lattice.of(closure)));
 		}
 
 		for (Entry<Identifier, UpperBounds> entry : other.upperbounds) {
@@ -121,10 +197,10 @@ public class Pentagons
 			if (!closure.isEmpty())
 				// glb is the union
 				newBounds = newBounds.putState(entry.getKey(),
-						newBounds.getState(entry.getKey()).glb(new UpperBounds(closure)));
+						newBounds.getState(entry.getKey()).glb(upperbounds.lattice.of(closure)));
 		}
 
-		return new Pentagons(newBounds, intervals.lub(other.intervals));
+		return mk(newBounds, intervals.lub(other.intervals));
 	}
 
 	@Override
@@ -169,7 +245,7 @@ public class Pentagons
 						Identifier y = (Identifier) be.getRight();
 						if(newBounds.getState(y).contains(x)) {
 							newIntervals = newIntervals.putState(id, newIntervals.getState(id)
-									.glb(new Intervals(MathNumber.ONE, MathNumber.PLUS_INFINITY)));
+									.glb(newIntervals.lattice.mk(MathNumber.ONE, MathNumber.PLUS_INFINITY)));
 						}
 					} else if (be.getRight() instanceof Constant)
 						// r = x + 2 (where 2 is the constant)
@@ -179,7 +255,15 @@ public class Pentagons
 			
 		}
 		
-		return new Pentagons(newBounds,newIntervals).closure();
+		Pentagons result = mk(newBounds, newIntervals);
+		if (incremental && closed && !newBounds.isTop() && !newBounds.isBottom()
+				&& !newIntervals.isTop() && !newIntervals.isBottom()) {
+			// the assignment only changed the entries of id
+			if (index != null)
+				result.index = index.update(id, newIntervals.getState(id));
+			return result.closure(Collections.singleton(id));
+		}
+		return result.closure();
 	}
 	
 
@@ -187,17 +271,14 @@ public class Pentagons
 	public Pentagons forgetIdentifier(
 			Identifier id)
 			throws SemanticException {
-		return new Pentagons(
-				upperbounds.forgetIdentifier(id), intervals.forgetIdentifier(id));
+		return mk(upperbounds.forgetIdentifier(id), intervals.forgetIdentifier(id));
 	}
 
 	@Override
 	public Pentagons forgetIdentifiersIf(
 			Predicate<Identifier> test)
 			throws SemanticException {
-		return new Pentagons(
-				upperbounds.forgetIdentifiersIf(test),
-				intervals.forgetIdentifiersIf(test));
+		return mk(upperbounds.forgetIdentifiersIf(test), intervals.forgetIdentifiersIf(test));
 	}
 
 	@Override
@@ -213,14 +294,14 @@ public class Pentagons
 	public Pentagons pushScope(
 			ScopeToken token)
 			throws SemanticException {
-		return new Pentagons(upperbounds.pushScope(token), intervals.pushScope(token));
+		return mk(upperbounds.pushScope(token), intervals.pushScope(token));
 	}
 
 	@Override
 	public Pentagons popScope(
 			ScopeToken token)
 			throws SemanticException {
-		return new Pentagons(upperbounds.popScope(token), intervals.popScope(token));
+		return mk(upperbounds.popScope(token), intervals.popScope(token));
 	}
 
 	@Override
@@ -267,27 +348,90 @@ public class Pentagons
 		return intervals.knowsIdentifier(id) || upperbounds.knowsIdentifier(id);
 	}
 
-	private Pentagons closure() throws SemanticException {
+	Pentagons closure() throws SemanticException {
 		ValueEnvironment<
 				UpperBounds> newBounds = new ValueEnvironment<UpperBounds>(upperbounds.lattice, upperbounds.getMap());
+		EndpointIndex index = index();
 
 		for (Identifier id1 : intervals.getKeys()) {
-			Set<Identifier> closure = new HashSet<>();
-			for (Identifier id2 : intervals.getKeys())
-				if (!id1.equals(id2))
-					if (intervals.getState(id1).interval.getHigh()
-							.compareTo(intervals.getState(id2).interval.getLow()) < 0)
-						closure.add(id2);
+			Intervals state = intervals.getState(id1);
+			if (state.isBottom())
+				continue;
+			Set<Identifier> closure = index.above(state.interval.getHigh(), id1);
 			if (!closure.isEmpty())
 				// glb is the union
 				newBounds = newBounds.putState(id1,
-						newBounds.getState(id1).glb(new UpperBounds(closure)));
+						newBounds.getState(id1).glb(upperbounds.lattice.of(closure)));
 
 		}
 
-		return new Pentagons(newBounds, intervals);
+		return closed(newBounds);
 	}
 
-	
+	/**
+	 * Incremental version of {@link #closure()}: assuming that the state this
+	 * one has been derived from was closed, and that the two only differ in
+	 * the entries of the given identifiers, only the strict upper bounds
+	 * involving at least one of them are re-derived. The result is equal to the
+	 * one of {@link #closure()}, but it only costs a linear number of
+	 * comparisons and a single copy of the bounds.
+	 * 
+	 * @param changed the identifiers whose bounds or intervals have changed
+	 * 
+	 * @return the closed state
+	 * 
+	 * @throws SemanticException if an error occurs while computing the glb of
+	 *                               the bounds
+	 */
+	Pentagons closure(Collection<Identifier> changed) throws SemanticException {
+		ValueEnvironment<
+				UpperBounds> base = new ValueEnvironment<UpperBounds>(upperbounds.lattice, upperbounds.getMap());
+		Set<Identifier> keys = intervals.getKeys();
+		Map<Identifier, UpperBounds> updates = new HashMap<>();
+
+		for (Identifier id1 : keys) {
+			Intervals state = intervals.getState(id1);
+			if (state.isBottom())
+				continue;
+			MathNumber high = state.interval.getHigh();
+			Set<Identifier> closure;
+			if (changed.contains(id1))
+				closure = index().above(high, id1);
+			else {
+				// pairs where both identifiers are unchanged are already part
+				// of the bounds of the closed state
+				closure = new HashSet<>();
+				for (Identifier id2 : changed)
+					if (!id1.equals(id2) && keys.contains(id2)) {
+						Intervals other = intervals.getState(id2);
+						if (!other.isBottom() && high.compareTo(other.interval.getLow()) < 0)
+							closure.add(id2);
+					}
+			}
+			if (!closure.isEmpty())
+				// glb is the union
+				updates.put(id1, base.getState(id1).glb(upperbounds.lattice.of(closure)));
+		}
+
+		if (updates.isEmpty())
+			return closed(base);
+
+		Map<Identifier, UpperBounds> function = base.getMap() == null ? new HashMap<>() : new HashMap<>(base.getMap());
+		function.putAll(updates);
+		return closed(new ValueEnvironment<UpperBounds>(upperbounds.lattice, function));
+	}
+
+	private Pentagons closed(ValueEnvironment<UpperBounds> bounds) {
+		Pentagons result = new Pentagons(bounds, intervals, incremental, true);
+		// the intervals are the same, and so is their index
+		result.index = index;
+		return result;
+	}
+
+	private EndpointIndex index() {
+		if (index == null)
+			index = EndpointIndex.of(intervals);
+		return index;
+	}
 
 }
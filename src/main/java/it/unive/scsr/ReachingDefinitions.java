@@ -1,6 +1,7 @@
 package it.unive.scsr;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -89,9 +90,7 @@ public class ReachingDefinitions
 
 	@Override
 	public Collection<Identifier> getInvolvedIdentifiers() {
-		Set<Identifier> result = new HashSet<>();
-		result.add(variable);
-		return result;
+		return Collections.singleton(variable);
 	}
 
 	@Override
@@ -127,6 +126,10 @@ public class ReachingDefinitions
 			throws SemanticException {
 		// we kill all of the elements that refer to the variable being
 		// assigned, as we are redefining the variable
+		if (domain instanceof IndexedPossibleDataflowDomain)
+			// the domain already groups the definitions by variable
+			return ((IndexedPossibleDataflowDomain<ReachingDefinitions>) domain).getDataflowElements(id);
+
 		Set<ReachingDefinitions> killed = new HashSet<>();
 		for (ReachingDefinitions rd : domain.getDataflowElements())
 			// we could use `rd.variable.equals(id)` as elements of this class
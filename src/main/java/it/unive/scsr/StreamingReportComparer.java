@@ -0,0 +1,360 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+
+/**
+ * A comparer of the results of two LiSA runs that, unlike
+ * {@link JsonReportComparer}, never loads a whole file in memory: the
+ * {@code report.json} files and the per-CFG {@code .json} files are read one
+ * token at a time, compared as they are read, and the comparison stops after
+ * a given number of differences. For each difference, the comparer reports the
+ * file, the CFG and the node (if any) where it occurred.<br>
+ * <br>
+ * Files are compared token by token, as LiSA always writes the same results in
+ * the same order. The {@code info} and {@code configuration} sections of the
+ * reports are ignored, as they contain run-specific information (e.g.,
+ * timings and the working directory). Files other than {@code .json} ones
+ * (e.g., the html graphs) are not compared, as they render the same content of
+ * the {@code .json} files: the {@code files} sections of the reports are thus
+ * ignored too, and the {@code .json} files of the two directories are compared
+ * instead, so that results generated with different
+ * {@link OutputProfile}s can be compared.
+ */
+public class StreamingReportComparer {
+
+	private static final String REPORT = "report.json";
+
+	private static final Set<String> IGNORED_SECTIONS = new HashSet<>(Arrays.asList("info", "configuration", "files"));
+
+	/**
+	 * A difference between two runs.
+	 */
+	public static class Difference {
+
+		private final String file;
+
+		private final String cfg;
+
+		private final String node;
+
+		private final String path;
+
+		private final String expected;
+
+		private final String actual;
+
+		private Difference(
+				String file,
+				String cfg,
+				String node,
+				String path,
+				String expected,
+				String actual) {
+			this.file = file;
+			this.cfg = cfg;
+			this.node = node;
+			this.path = path;
+			this.expected = expected;
+			this.actual = actual;
+		}
+
+		/**
+		 * Yields the file where the difference occurred.
+		 *
+		 * @return the name of the file
+		 */
+		public String getFile() {
+			return file;
+		}
+
+		/**
+		 * Yields the CFG where the difference occurred.
+		 *
+		 * @return the name of the CFG, or {@code null} if the difference is
+		 *             not in a CFG
+		 */
+		public String getCfg() {
+			return cfg;
+		}
+
+		/**
+		 * Yields the node where the difference occurred.
+		 *
+		 * @return the id of the node, or {@code null} if the difference is not
+		 *             in a node or in its description
+		 */
+		public String getNode() {
+			return node;
+		}
+
+		/**
+		 * Yields the position of the difference in the file.
+		 *
+		 * @return the path of the different value (e.g.,
+		 *             {@code descriptions[3].description.state}), or
+		 *             {@code null} if the whole file is missing
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder(file);
+			if (cfg != null)
+				result.append(", cfg '").append(cfg).append("'");
+			if (node != null)
+				result.append(", node ").append(node);
+			if (path != null)
+				result.append(", at ").append(path);
+			return result.append(": expected ").append(expected).append(" but found ").append(actual).toString();
+		}
+	}
+
+	private final int maxDifferences;
+
+	private final List<Difference> differences = new ArrayList<>();
+
+	/**
+	 * Builds the comparer.
+	 *
+	 * @param maxDifferences the number of differences after which the
+	 *                           comparison stops (at least one)
+	 */
+	public StreamingReportComparer(
+			int maxDifferences) {
+		this.maxDifferences = Math.max(1, maxDifferences);
+	}
+
+	/**
+	 * Compares the results of two runs.
+	 *
+	 * @param expectedDir the working directory of the expected run
+	 * @param actualDir   the working directory of the actual run
+	 *
+	 * @return the differences found, at most as many as the maximum given at
+	 *             construction (the list is empty if the runs computed the
+	 *             same results)
+	 *
+	 * @throws IOException if the files cannot be read, or they are malformed
+	 */
+	public List<Difference> compare(
+			Path expectedDir,
+			Path actualDir)
+			throws IOException {
+		differences.clear();
+		compareFile(expectedDir, actualDir, REPORT);
+
+		SortedSet<String> expected = jsonFiles(expectedDir);
+		SortedSet<String> actual = jsonFiles(actualDir);
+		for (String file : expected)
+			if (!actual.contains(file))
+				add(new Difference(file, null, null, null, "the file", "nothing"));
+		for (String file : actual)
+			if (!expected.contains(file))
+				add(new Difference(file, null, null, null, "nothing", "the file"));
+
+		for (String file : expected)
+			if (actual.contains(file))
+				compareFile(expectedDir, actualDir, file);
+
+		return Collections.unmodifiableList(new ArrayList<>(differences));
+	}
+
+	private boolean done() {
+		return differences.size() >= maxDifferences;
+	}
+
+	private void add(
+			Difference difference) {
+		if (!done())
+			differences.add(difference);
+	}
+
+	private static SortedSet<String> jsonFiles(
+			Path dir)
+			throws IOException {
+		SortedSet<String> result = new TreeSet<>();
+		try (Stream<Path> files = Files.list(dir)) {
+			files.map(p -> p.getFileName().toString())
+					.filter(name -> name.endsWith(".json") && !name.equals(REPORT))
+					.forEach(result::add);
+		}
+		return result;
+	}
+
+	/**
+	 * Compares two files, stopping at their first difference (after which the
+	 * two streams are no longer aligned).
+	 */
+	private void compareFile(
+			Path expectedDir,
+			Path actualDir,
+			String file)
+			throws IOException {
+		if (done())
+			return;
+
+		try (JsonTokenizer exp = new JsonTokenizer(
+				Files.newBufferedReader(expectedDir.resolve(file), StandardCharsets.UTF_8));
+				JsonTokenizer act = new JsonTokenizer(
+						Files.newBufferedReader(actualDir.resolve(file), StandardCharsets.UTF_8))) {
+			Position position = new Position();
+			boolean report = file.equals(REPORT);
+			while (true) {
+				JsonTokenizer.Kind kind = exp.next();
+				act.next();
+				position.update(kind, exp.text());
+
+				if (kind != act.kind() || !Objects.equals(exp.text(), act.text())) {
+					add(new Difference(file, position.cfg, position.node, position.toString(),
+							describe(exp), describe(act)));
+					return;
+				}
+
+				if (kind == JsonTokenizer.Kind.END)
+					return;
+
+				if (report && kind == JsonTokenizer.Kind.NAME && position.depth() == 1
+						&& IGNORED_SECTIONS.contains(exp.text())) {
+					exp.skipValue();
+					act.skipValue();
+					position.update(JsonTokenizer.Kind.LITERAL, null);
+				}
+			}
+		}
+	}
+
+	private static String describe(
+			JsonTokenizer tokens) {
+		switch (tokens.kind()) {
+		case BEGIN_OBJECT:
+			return "an object";
+		case END_OBJECT:
+			return "the end of the object";
+		case BEGIN_ARRAY:
+			return "an array";
+		case END_ARRAY:
+			return "the end of the array";
+		case NAME:
+			return "field '" + tokens.text() + "'";
+		case STRING:
+			return "\"" + tokens.text() + "\"";
+		case END:
+			return "the end of the file";
+		default:
+			return tokens.text();
+		}
+	}
+
+	/**
+	 * The position of the last token read in a serialized graph: its path,
+	 * the name of the CFG and the id of the current node.
+	 */
+	private static class Position {
+
+		private final Deque<Frame> frames = new ArrayDeque<>();
+
+		private String cfg;
+
+		private String node;
+
+		/**
+		 * The field whose value is about to be read, if it is the name of the
+		 * CFG or the id of a node.
+		 */
+		private String pending;
+
+		private int depth() {
+			return frames.size();
+		}
+
+		private void update(
+				JsonTokenizer.Kind kind,
+				String text) {
+			Frame top = frames.peek();
+			switch (kind) {
+			case BEGIN_OBJECT:
+			case BEGIN_ARRAY:
+				if (top != null && top.array)
+					top.index++;
+				if (kind == JsonTokenizer.Kind.BEGIN_OBJECT && depth() == 2)
+					// a new node, edge or description
+					node = null;
+				frames.push(new Frame(kind == JsonTokenizer.Kind.BEGIN_ARRAY));
+				pending = null;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				frames.poll();
+				pending = null;
+				break;
+			case NAME:
+				if (top != null)
+					top.field = text;
+				if (depth() == 1 && text.equals("name"))
+					pending = "name";
+				else if (depth() == 3 && (text.equals("id") || text.equals("nodeId")))
+					pending = "node";
+				else
+					pending = null;
+				break;
+			case END:
+				break;
+			default:
+				if (top != null && top.array)
+					top.index++;
+				if ("name".equals(pending))
+					cfg = text;
+				else if ("node".equals(pending))
+					node = text;
+				pending = null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder();
+			for (Iterator<Frame> it = frames.descendingIterator(); it.hasNext();) {
+				Frame frame = it.next();
+				if (frame.array)
+					result.append('[').append(Math.max(frame.index, 0)).append(']');
+				else if (frame.field != null)
+					result.append(result.length() == 0 ? "" : ".").append(frame.field);
+			}
+			return result.length() == 0 ? "the root" : result.toString();
+		}
+	}
+
+	private static class Frame {
+
+		private final boolean array;
+
+		private int index = -1;
+
+		private String field;
+
+		private Frame(
+				boolean array) {
+			this.array = array;
+		}
+	}
+}
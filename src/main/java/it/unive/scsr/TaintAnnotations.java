@@ -0,0 +1,67 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import it.unive.lisa.analysis.taint.BaseTaint;
+import it.unive.lisa.program.ClassUnit;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.program.cfg.CodeMember;
+import it.unive.lisa.program.cfg.Parameter;
+
+/**
+ * The sources, sanitizers and sinks of the taint programs in {@code inputs/},
+ * identified by the names of their code members. The tests, the evaluation
+ * harness and the benchmarks all annotate the programs through this class, so
+ * that they always agree on what is a source, a sanitizer or a sink.
+ */
+public final class TaintAnnotations {
+
+	/**
+	 * The names of the code members whose results are tainted.
+	 */
+	public static final List<String> SOURCES = Collections.unmodifiableList(Arrays.asList("source1", "source2"));
+
+	/**
+	 * The names of the code members whose results are clean.
+	 */
+	public static final List<String> SANITIZERS = Collections
+			.unmodifiableList(Arrays.asList("sanitizer1", "sanitizer2"));
+
+	/**
+	 * The names of the code members whose parameters are sinks.
+	 */
+	public static final List<String> SINKS = Collections.unmodifiableList(Arrays.asList("sink1", "sinks"));
+
+	private TaintAnnotations() {
+	}
+
+	/**
+	 * Annotates the sources and sanitizers of the given program with
+	 * {@link BaseTaint#TAINTED_ANNOTATION} and {@link BaseTaint#CLEAN_ANNOTATION},
+	 * and the parameters of its sinks with the given annotation.
+	 *
+	 * @param program the program to annotate
+	 * @param sink    the annotation marking the parameters of the sinks, that
+	 *                    is, the one recognized by the checker
+	 */
+	public static void load(
+			Program program,
+			Annotation sink) {
+		for (Unit unit : program.getUnits())
+			if (unit instanceof ClassUnit)
+				for (CodeMember cm : ((ClassUnit) unit).getInstanceCodeMembers(false)) {
+					String name = cm.getDescriptor().getName();
+					if (SOURCES.contains(name))
+						cm.getDescriptor().getAnnotations().addAnnotation(BaseTaint.TAINTED_ANNOTATION);
+					else if (SANITIZERS.contains(name))
+						cm.getDescriptor().getAnnotations().addAnnotation(BaseTaint.CLEAN_ANNOTATION);
+					else if (SINKS.contains(name))
+						for (Parameter param : cm.getDescriptor().getFormals())
+							param.addAnnotation(sink);
+				}
+	}
+}
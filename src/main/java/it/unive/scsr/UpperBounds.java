@@ -1,5 +1,6 @@
 package it.unive.scsr;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -43,10 +44,23 @@ public class UpperBounds
 	private final boolean isTop;
 
 	/**
-	 * The set containing the bounds.
+	 * The set containing the bounds, if this element does not use the bitset
+	 * representation.
 	 */
 	private final Set<Identifier> bounds;
 
+	/**
+	 * The table interning the identifiers of {@link #bits}, or {@code null}
+	 * if this element does not use the bitset representation.
+	 */
+	private final IdentifierTable table;
+
+	/**
+	 * The bitset containing the indexes (in {@link #table}) of the bounds, if
+	 * this element uses the bitset representation.
+	 */
+	private final BitSet bits;
+
 	
 	/**
 	 * The abstract top element.
@@ -74,9 +88,26 @@ public class UpperBounds
 	public UpperBounds(
 			boolean isTop) {
 		this.bounds = null;
+		this.table = null;
+		this.bits = null;
 		this.isTop = isTop;
 	}
 
+	/**
+	 * Builds the top upper bounds using the bitset representation. All the
+	 * elements derived from this one share the given table and store their
+	 * bounds as bitsets, so that lattice operations are word-wise.
+	 * 
+	 * @param table the table interning the identifiers
+	 */
+	public UpperBounds(
+			IdentifierTable table) {
+		this.bounds = null;
+		this.table = table;
+		this.bits = null;
+		this.isTop = true;
+	}
+
 	/**
 	 * Builds the upper bounds.
 	 * 
@@ -85,32 +116,88 @@ public class UpperBounds
 	public UpperBounds(
 			Set<Identifier> bounds) {
 		this.bounds = bounds;
+		this.table = null;
+		this.bits = null;
+		this.isTop = false;
+	}
+
+	private UpperBounds(
+			IdentifierTable table,
+			BitSet bits) {
+		this.bounds = null;
+		this.table = table;
+		this.bits = bits;
 		this.isTop = false;
 	}
 
+	/**
+	 * Builds the upper bounds containing the given identifiers, using the same
+	 * representation of this element.
+	 * 
+	 * @param bounds the bounds to set
+	 * 
+	 * @return the upper bounds
+	 */
+	public UpperBounds of(
+			Set<Identifier> bounds) {
+		if (table == null)
+			return new UpperBounds(bounds);
+		BitSet result = new BitSet();
+		for (Identifier id : bounds)
+			result.set(table.intern(id));
+		return new UpperBounds(table, result);
+	}
+
+
+	/**
+	 * Builds the upper bounds whose indexes in the given table are set in
+	 * {@code bits}. The bitset must not be modified afterwards.
+	 * 
+	 * @param table the table interning the identifiers
+	 * @param bits  the bounds
+	 * 
+	 * @return the upper bounds
+	 */
+	static UpperBounds of(
+			IdentifierTable table,
+			BitSet bits) {
+		return new UpperBounds(table, bits);
+	}
+
 	
 	@Override
 	public UpperBounds glbAux(UpperBounds other) throws SemanticException {
+		if (table != null) {
+			BitSet result = (BitSet) bits.clone();
+			result.or(other.bitsIn(table));
+			return new UpperBounds(table, result);
+		}
 		Set<Identifier> result = new HashSet<Identifier>(bounds);
-		result.addAll(other.bounds);
+		result.addAll(other.identifiers());
 		return new UpperBounds(result);
 	}
 
 	@Override
 	public UpperBounds lubAux(UpperBounds other) throws SemanticException {
+		if (table != null) {
+			BitSet result = (BitSet) bits.clone();
+			result.and(other.bitsIn(table));
+			return new UpperBounds(table, result);
+		}
 		Set<Identifier> result = new HashSet<Identifier>(bounds);
-		result.retainAll(other.bounds);
+		result.retainAll(other.identifiers());
 		return new UpperBounds(result);
 	}
 
 	@Override
 	public boolean lessOrEqualAux(UpperBounds other) throws SemanticException {
-		return bounds.containsAll(other.bounds);
+		return containsAll(other);
 	}
 
 	@Override
 	public UpperBounds top() {
-		
+		if (table != null)
+			return new UpperBounds(table);
 		return TOP;
 	}
 	
@@ -121,11 +208,15 @@ public class UpperBounds
 
 	@Override
 	public UpperBounds bottom() {
+		if (table != null)
+			return new UpperBounds(table, new BitSet());
 		return BOTTOM;
 	}
 	
 	@Override
 	public boolean isBottom() {
+		if (bits != null)
+			return !isTop && bits.isEmpty();
 		return !isTop && bounds != null && bounds.isEmpty();
 	}
 
@@ -136,12 +227,19 @@ public class UpperBounds
 		if(isBottom())
 			return Lattice.bottomRepresentation();
 		
-		return new SetRepresentation(bounds, StringRepresentation::new);
+		return new SetRepresentation(identifiers(), StringRepresentation::new);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(bounds, isTop);
+		if (bits == null)
+			return Objects.hash(bounds, isTop);
+		// consistent with the set representation: the hash of a set is the
+		// sum of the hashes of its elements
+		int boundsHash = 0;
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+			boundsHash += table.get(i).hashCode();
+		return 31 * (31 + boundsHash) + Boolean.hashCode(isTop);
 	}
 
 	@Override
@@ -153,11 +251,17 @@ public class UpperBounds
 		if (getClass() != obj.getClass())
 			return false;
 		UpperBounds other = (UpperBounds) obj;
-		return Objects.equals(bounds, other.bounds) && isTop == other.isTop;
+		if (isTop != other.isTop)
+			return false;
+		if (table != null && table == other.table)
+			return Objects.equals(bits, other.bits);
+		return Objects.equals(identifiers(), other.identifiers());
 	}
 
 	@Override
 	public Iterator<Identifier> iterator() {
+		if (bits != null)
+			return bits.stream().mapToObj(table::get).iterator();
 		if(bounds == null)
 			return Collections.emptyIterator();
 		
@@ -177,7 +281,7 @@ public class UpperBounds
 		
 		if(operator instanceof ComparisonLt) {
 			UpperBounds set = environment.getState(leftId).glb(environment.getState(rightId))
-					.glb(new UpperBounds(Collections.singleton(rightId)));
+					.glb(of(Collections.singleton(rightId)));
 			return environment.putState(leftId, set);
 		} else if(operator instanceof ComparisonEq) {
 			
@@ -188,7 +292,7 @@ public class UpperBounds
 			// x > y --> y < x
 			
 			UpperBounds set = environment.getState(rightId).glb(environment.getState(leftId))
-					.glb(new UpperBounds(Collections.singleton(leftId)));
+					.glb(of(Collections.singleton(leftId)));
 			return environment.putState(rightId, set);
 		} else if(operator instanceof ComparisonLe) {
 			// x <= y 
@@ -210,7 +314,7 @@ public class UpperBounds
 	public UpperBounds wideningAux(
 			UpperBounds other)
 			throws SemanticException {
-		return other.bounds.containsAll(bounds) ? other : TOP;
+		return other.containsAll(this) ? other : top();
 	}
 
 	/**
@@ -224,6 +328,10 @@ public class UpperBounds
 	 */
 	public boolean contains(
 			Identifier id) {
+		if (bits != null) {
+			int index = table.indexOf(id);
+			return index >= 0 && bits.get(index);
+		}
 		return bounds != null && bounds.contains(id);
 	}
 
@@ -236,10 +344,52 @@ public class UpperBounds
 	 */
 	public UpperBounds add(
 			Identifier id) {
+		if (table != null) {
+			BitSet res = isTop() || isBottom() ? new BitSet() : (BitSet) bits.clone();
+			res.set(table.intern(id));
+			return new UpperBounds(table, res);
+		}
 		Set<Identifier> res = new HashSet<>();
 		if (!isTop() && !isBottom())
 			res.addAll(bounds);
 		res.add(id);
 		return new UpperBounds(res);
 	}
+
+	private boolean containsAll(
+			UpperBounds other) {
+		if (table != null) {
+			BitSet missing = (BitSet) other.bitsIn(table).clone();
+			missing.andNot(bits);
+			return missing.isEmpty();
+		}
+		return bounds.containsAll(other.identifiers());
+	}
+
+	/**
+	 * Yields the bounds of this element as a set, or {@code null} if this is
+	 * the top element.
+	 */
+	private Set<Identifier> identifiers() {
+		if (bits == null)
+			return bounds;
+		Set<Identifier> result = new HashSet<>();
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+			result.add(table.get(i));
+		return result;
+	}
+
+	/**
+	 * Yields the bounds of this element as a bitset indexed by the given table.
+	 * The returned bitset must not be modified.
+	 */
+	BitSet bitsIn(
+			IdentifierTable table) {
+		if (this.table == table)
+			return bits;
+		BitSet result = new BitSet();
+		for (Identifier id : identifiers())
+			result.set(table.intern(id));
+		return result;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package it.unive.scsr.checkers;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.taint.BaseTaint;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.program.annotations.matcher.AnnotationMatcher;
+import it.unive.lisa.program.annotations.matcher.BasicAnnotationMatcher;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeMember;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.call.CFGCall;
+import it.unive.lisa.program.cfg.statement.call.Call;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.scsr.checkers.TaintVerdictPolicy.Verdict;
+
+/**
+ * A checker for any taint domain, that warns when the values passed for the
+ * parameters annotated as sinks are tainted. Which values are worth a warning,
+ * and what the warning says, is decided by a {@link TaintVerdictPolicy}. The
+ * checker works on any value state holding the taint domain (e.g., a
+ * {@link it.unive.lisa.analysis.nonrelational.value.ValueEnvironment} or a
+ * {@link it.unive.scsr.PackedTaintEnvironment}), that is queried through an
+ * {@link Evaluator}.
+ *
+ * @param <T> the type of taint domain
+ * @param <V> the type of value state
+ */
+public class BaseTaintChecker<T extends BaseTaint<T>, V extends ValueDomain<V>> implements
+		SemanticCheck<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> {
+
+	private static final Logger LOG = LogManager.getLogger(BaseTaintChecker.class);
+
+	/**
+	 * Sink annotation.
+	 */
+	public static final Annotation SINK_ANNOTATION = new Annotation("lisa.taint.Sink");
+
+	/**
+	 * Sink matcher.
+	 */
+	public static final AnnotationMatcher SINK_MATCHER = new BasicAnnotationMatcher(SINK_ANNOTATION);
+
+	private final TaintVerdictPolicy policy;
+
+	/**
+	 * Whether or not only the call sites in the {@link SinkIndex} are
+	 * inspected.
+	 */
+	private final boolean indexed;
+
+	/**
+	 * The index of the program being checked, built when the first CFG is
+	 * visited.
+	 */
+	private SinkIndex index;
+
+	/**
+	 * The findings to warn about once the whole program has been checked.
+	 */
+	private final TaintFindings findings = new TaintFindings();
+
+	/**
+	 * The cache of the queries issued on the analysis states, emptied after
+	 * each run.
+	 */
+	private final TaintCheckCache<T, V> cache;
+
+	/**
+	 * The evaluation of an expression to its taintedness in a value state.
+	 *
+	 * @param <T> the type of taint domain
+	 * @param <V> the type of value state
+	 */
+	@FunctionalInterface
+	public interface Evaluator<T extends BaseTaint<T>, V extends ValueDomain<V>> {
+
+		/**
+		 * Yields the taintedness of the given expression in the given value
+		 * state.
+		 *
+		 * @param values     the value state
+		 * @param expression the expression
+		 * @param pp         the program point where the evaluation happens
+		 * @param oracle     the oracle for inter-domain communication
+		 *
+		 * @return the taintedness of {@code expression}
+		 *
+		 * @throws SemanticException if an error happens during the evaluation
+		 */
+		T eval(
+				V values,
+				ValueExpression expression,
+				ProgramPoint pp,
+				SemanticOracle oracle)
+				throws SemanticException;
+	}
+
+	/**
+	 * Builds the checker.
+	 *
+	 * @param policy    the policy deciding which values are worth a warning
+	 * @param indexed   whether or not only the calls that might resolve to a
+	 *                      code member having a parameter annotated as sink
+	 *                      should be inspected, instead of resolving every
+	 *                      call of the program
+	 * @param evaluator the evaluation of expressions in the value states (e.g.,
+	 *                      {@code ValueEnvironment::eval})
+	 */
+	public BaseTaintChecker(
+			TaintVerdictPolicy policy,
+			boolean indexed,
+			Evaluator<T, V> evaluator) {
+		this.policy = policy;
+		this.indexed = indexed;
+		this.cache = new TaintCheckCache<>(evaluator);
+	}
+
+	@Override
+	public void afterExecution(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> tool) {
+		findings.emit(tool, policy);
+		index = null;
+		LOG.info("{} cache: {}", getClass().getSimpleName(), cache.statistics());
+		cache.clear();
+	}
+
+	// CFGs without calls to sinks are skipped altogether
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> tool,
+			CFG graph) {
+		return !indexed || index(graph).hasCallSites(graph);
+	}
+
+	// This method is called for each statement of CFG
+	// The idea is to detect calls with formal parameter annotated as sink and check if the value is tainted
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> tool,
+			CFG graph, Statement node) {
+
+		if (!(node instanceof UnresolvedCall))
+			return true; // if it is a statement that it is not a call, then we don't care because cannot have paramenters annaotated as sinks
+		if (indexed && !index(graph).isCallSite(graph, node))
+			return true; // the call cannot reach a sink
+
+		UnresolvedCall call = (UnresolvedCall) node;
+		Set<Verdict> verdicts = policy.verdicts();
+		try {
+			// we get the taint analysis results mapped on the CFG containg the call that we want investigate
+			for (AnalyzedCFG<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> result : tool.getResultOf(call.getCFG())) {
+
+				// we resolve the call, i.e. we ensure that call has been correctly processed by the analysis
+				Call resolved = tool.getResolvedVersion(call, result);
+				if (resolved == null)
+					System.err.println("Error");
+
+				if (resolved instanceof CFGCall) {
+					CFGCall cfg = (CFGCall) resolved;
+					for (CodeMember n : cfg.getTargets()) {
+						// we check if the call parameters are annotated as sinks
+						for (int i : sinkParameters(n)) {
+							if (findings.containsAll(call, n, i, verdicts))
+								continue; // nothing new to find, e.g. in another context
+
+							//we check if the parameter annotated as sink is tainted
+							AnalysisState<
+									SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> state = result
+													.getAnalysisStateAfter(call.getParameters()[i]);
+							Set<SymbolicExpression> reachableIds = new HashSet<>();
+							for (SymbolicExpression e : state.getComputedExpressions())
+								reachableIds.addAll(cache.reachableFrom(state, e, node));
+
+							for (SymbolicExpression s : reachableIds) {
+								Verdict verdict = policy.verdictOn(cache.eval(state, (ValueExpression) s, node));
+								if (verdict != null) {
+									// in the sink flows a tainted data, then we record a warning for the LiSA report result
+									findings.add(call, n, i, verdict, resolved.getFullTargetName());
+									if (findings.containsAll(call, n, i, verdicts))
+										break;
+								}
+							}
+						}
+					}
+				}
+				// ... case of NativeCall
+			}
+		} catch (SemanticException e) {
+			System.err.println("Cannot check " + node);
+			e.printStackTrace(System.err);
+		}
+
+		return true;
+	}
+
+	private SinkIndex index(
+			CFG graph) {
+		if (index == null)
+			index = SinkIndex.of(graph, SINK_MATCHER);
+		return index;
+	}
+
+	private int[] sinkParameters(
+			CodeMember target) {
+		if (indexed)
+			return index.sinkParameters(target);
+
+		Parameter[] parameters = target.getDescriptor().getFormals();
+		return IntStream.range(0, parameters.length)
+				.filter(i -> parameters[i].getAnnotations().contains(SINK_MATCHER))
+				.toArray();
+	}
+}
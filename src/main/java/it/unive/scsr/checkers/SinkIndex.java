@@ -0,0 +1,176 @@
+package it.unive.scsr.checkers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unive.lisa.program.CompilationUnit;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.ProgramUnit;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.annotations.matcher.AnnotationMatcher;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeMember;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.NaryStatement;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+
+/**
+ * An index of the code members of a program having at least a parameter
+ * annotated as a sink, and of the call sites that might resolve to them, that
+ * is, the {@link UnresolvedCall}s whose target name is the name of one of such
+ * members (a call can only be resolved to a member with its same name). The
+ * taint checkers build the index once, before checking, and then only
+ * inspect the call sites in it, instead of resolving every call of the
+ * program.
+ */
+final class SinkIndex {
+
+	/**
+	 * The indexes of the sink parameters of each sink.
+	 */
+	private final Map<CodeMember, int[]> sinks;
+
+	/**
+	 * The call sites that might resolve to a sink, grouped by CFG.
+	 */
+	private final Map<CFG, Set<Statement>> callSites;
+
+	private SinkIndex(
+			Map<CodeMember, int[]> sinks,
+			Map<CFG, Set<Statement>> callSites) {
+		this.sinks = sinks;
+		this.callSites = callSites;
+	}
+
+	/**
+	 * Builds the index of the program containing the given CFG.
+	 *
+	 * @param graph   a CFG of the program
+	 * @param matcher the matcher of the sink annotation
+	 *
+	 * @return the index
+	 */
+	static SinkIndex of(
+			CFG graph,
+			AnnotationMatcher matcher) {
+		Unit unit = graph.getDescriptor().getUnit();
+		Program program = unit instanceof Program ? (Program) unit : ((ProgramUnit) unit).getProgram();
+		return of(program, matcher);
+	}
+
+	/**
+	 * Builds the index of the given program.
+	 *
+	 * @param program the program
+	 * @param matcher the matcher of the sink annotation
+	 *
+	 * @return the index
+	 */
+	static SinkIndex of(
+			Program program,
+			AnnotationMatcher matcher) {
+		Map<CodeMember, int[]> sinks = new HashMap<>();
+		indexSinks(program.getCodeMembers(), matcher, sinks);
+		for (Unit unit : program.getUnits()) {
+			indexSinks(unit.getCodeMembers(), matcher, sinks);
+			if (unit instanceof CompilationUnit)
+				indexSinks(((CompilationUnit) unit).getInstanceCodeMembers(false), matcher, sinks);
+		}
+
+		Set<String> names = new HashSet<>();
+		for (CodeMember sink : sinks.keySet())
+			names.add(sink.getDescriptor().getName());
+
+		Map<CFG, Set<Statement>> callSites = new HashMap<>();
+		if (!names.isEmpty())
+			for (CFG cfg : program.getAllCFGs()) {
+				Set<Statement> calls = new HashSet<>();
+				for (Statement st : cfg.getNodes())
+					collectCallSites(st, names, calls);
+				if (!calls.isEmpty())
+					callSites.put(cfg, calls);
+			}
+
+		return new SinkIndex(sinks, callSites);
+	}
+
+	private static void indexSinks(
+			Collection<? extends CodeMember> members,
+			AnnotationMatcher matcher,
+			Map<CodeMember, int[]> sinks) {
+		for (CodeMember cm : members) {
+			Parameter[] formals = cm.getDescriptor().getFormals();
+			List<Integer> indexes = new ArrayList<>();
+			for (int i = 0; i < formals.length; i++)
+				if (formals[i].getAnnotations().contains(matcher))
+					indexes.add(i);
+			if (!indexes.isEmpty())
+				sinks.put(cm, indexes.stream().mapToInt(Integer::intValue).toArray());
+		}
+	}
+
+	private static void collectCallSites(
+			Statement st,
+			Set<String> names,
+			Set<Statement> calls) {
+		if (st instanceof UnresolvedCall && names.contains(((UnresolvedCall) st).getTargetName()))
+			calls.add(st);
+		// calls are expressions, and can be nested in other ones
+		if (st instanceof NaryExpression)
+			for (Expression sub : ((NaryExpression) st).getSubExpressions())
+				collectCallSites(sub, names, calls);
+		else if (st instanceof NaryStatement)
+			for (Expression sub : ((NaryStatement) st).getSubExpressions())
+				collectCallSites(sub, names, calls);
+	}
+
+	/**
+	 * Yields whether the given CFG contains call sites that might resolve to
+	 * a sink.
+	 *
+	 * @param graph the CFG
+	 *
+	 * @return {@code true} if that is the case
+	 */
+	boolean hasCallSites(
+			CFG graph) {
+		return callSites.containsKey(graph);
+	}
+
+	/**
+	 * Yields whether the given statement is a call site that might resolve to
+	 * a sink.
+	 *
+	 * @param graph the CFG containing the statement
+	 * @param node  the statement
+	 *
+	 * @return {@code true} if that is the case
+	 */
+	boolean isCallSite(
+			CFG graph,
+			Statement node) {
+		return callSites.getOrDefault(graph, Collections.emptySet()).contains(node);
+	}
+
+	/**
+	 * Yields the indexes of the sink parameters of the given code member.
+	 *
+	 * @param target the code member
+	 *
+	 * @return the indexes, empty if {@code target} is not a sink
+	 */
+	int[] sinkParameters(
+			CodeMember target) {
+		int[] result = sinks.get(target);
+		return result == null ? new int[0] : result;
+	}
+}
@@ -0,0 +1,153 @@
+package it.unive.scsr.checkers;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.taint.BaseTaint;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.scsr.checkers.BaseTaintChecker.Evaluator;
+
+/**
+ * A cache of the queries that the taint checkers issue on the analysis states
+ * during a run, that is, of the expressions reachable from a computed
+ * expression and of the taintedness of such expressions. Queries are keyed by
+ * the identity of the analysis state, as stored in the results of the analysis
+ * and returned by
+ * {@link it.unive.lisa.analysis.AnalyzedCFG#getAnalysisStateAfter}, and by the
+ * expression: states are never hashed nor compared, and they are already
+ * retained by the results for the whole run. A stored state is the one after
+ * a given expression, so it is always queried at the same program point. The
+ * cache also counts how many queries it answered without computing them. It
+ * is meant to live for a single execution of a checker, and should be
+ * {@link #clear() cleared} afterwards.
+ *
+ * @param <T> the type of taint domain
+ * @param <V> the type of value state
+ */
+final class TaintCheckCache<T extends BaseTaint<T>, V extends ValueDomain<V>> {
+
+	private final Evaluator<T, V> evaluator;
+
+	private final Map<AnalysisState<?>, Queries<T>> queries = new IdentityHashMap<>();
+
+	private long reachableLookups, reachableHits, evalLookups, evalHits;
+
+	/**
+	 * Builds the cache.
+	 *
+	 * @param evaluator the evaluation of expressions in the value states
+	 */
+	TaintCheckCache(
+			Evaluator<T, V> evaluator) {
+		this.evaluator = evaluator;
+	}
+
+	/**
+	 * Yields the expressions reachable from the given one in the given state.
+	 *
+	 * @param state the analysis state
+	 * @param e     the expression
+	 * @param pp    the program point where the query is evaluated
+	 *
+	 * @return the reachable expressions
+	 *
+	 * @throws SemanticException if the expressions cannot be computed
+	 */
+	Set<SymbolicExpression> reachableFrom(
+			AnalysisState<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> state,
+			SymbolicExpression e,
+			ProgramPoint pp)
+			throws SemanticException {
+		Map<SymbolicExpression, Set<SymbolicExpression>> reachable = queriesOn(state).reachable;
+		reachableLookups++;
+		Set<SymbolicExpression> result = reachable.get(e);
+		if (result != null) {
+			reachableHits++;
+			return result;
+		}
+
+		result = state.getState().reachableFrom(e, pp, state.getState()).elements;
+		reachable.put(e, result);
+		return result;
+	}
+
+	/**
+	 * Yields the taintedness of the given expression in the given state.
+	 *
+	 * @param state the analysis state
+	 * @param e     the expression
+	 * @param pp    the program point where the query is evaluated
+	 *
+	 * @return the taintedness of {@code e}
+	 *
+	 * @throws SemanticException if the expression cannot be evaluated
+	 */
+	T eval(
+			AnalysisState<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> state,
+			ValueExpression e,
+			ProgramPoint pp)
+			throws SemanticException {
+		Map<ValueExpression, T> evaluations = queriesOn(state).evaluations;
+		evalLookups++;
+		T result = evaluations.get(e);
+		if (result != null) {
+			evalHits++;
+			return result;
+		}
+
+		result = evaluator.eval(state.getState().getValueState(), e, pp, state.getState());
+		evaluations.put(e, result);
+		return result;
+	}
+
+	private Queries<T> queriesOn(
+			AnalysisState<?> state) {
+		return queries.computeIfAbsent(state, s -> new Queries<>());
+	}
+
+	/**
+	 * Empties the cache, and resets its statistics.
+	 */
+	void clear() {
+		queries.clear();
+		reachableLookups = reachableHits = evalLookups = evalHits = 0;
+	}
+
+	/**
+	 * Yields a description of how many queries were answered by the cache.
+	 *
+	 * @return the description
+	 */
+	String statistics() {
+		return "reachability " + rate(reachableHits, reachableLookups) + ", evaluation "
+				+ rate(evalHits, evalLookups);
+	}
+
+	private static String rate(
+			long hits,
+			long lookups) {
+		return hits + "/" + lookups + " hits"
+				+ (lookups == 0 ? "" : String.format(" (%.1f%%)", 100.0 * hits / lookups));
+	}
+
+	/**
+	 * The results of the queries issued on a single state.
+	 */
+	private static class Queries<T> {
+
+		private final Map<SymbolicExpression, Set<SymbolicExpression>> reachable = new HashMap<>();
+
+		private final Map<ValueExpression, T> evaluations = new HashMap<>();
+	}
+}
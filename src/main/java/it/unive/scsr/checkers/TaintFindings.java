@@ -0,0 +1,152 @@
+package it.unive.scsr.checkers;
+
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.program.cfg.CodeMember;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+import it.unive.scsr.checkers.TaintVerdictPolicy.Verdict;
+
+/**
+ * The findings of a taint checker, collected while visiting the program and
+ * emitted as warnings only once the visit ends. A finding is identified by
+ * the call site, the target it has been resolved to, the index of the sink
+ * parameter and the verdict: the same finding, raised by several reachable
+ * expressions or by several contexts of the same call, is thus recorded (and
+ * later warned about) only once, and its message is built only then.
+ */
+final class TaintFindings {
+
+	/**
+	 * A tainted value reaching a sink.
+	 */
+	private static final class Finding {
+
+		private final UnresolvedCall call;
+
+		private final CodeMember target;
+
+		private final int parameter;
+
+		private final Verdict verdict;
+
+		private final String targetName;
+
+		private Finding(
+				UnresolvedCall call,
+				CodeMember target,
+				int parameter,
+				Verdict verdict,
+				String targetName) {
+			this.call = call;
+			this.target = target;
+			this.parameter = parameter;
+			this.verdict = verdict;
+			this.targetName = targetName;
+		}
+
+		private String message(
+				TaintVerdictPolicy policy) {
+			String sink = target.getDescriptor().getFormals()[parameter].getName();
+			return policy.message(verdict, parameter, sink, targetName);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(call, target, parameter, verdict);
+		}
+
+		@Override
+		public boolean equals(
+				Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Finding))
+				return false;
+			Finding other = (Finding) obj;
+			// the target name is determined by the call
+			return parameter == other.parameter
+					&& verdict == other.verdict
+					&& Objects.equals(call, other.call)
+					&& Objects.equals(target, other.target);
+		}
+	}
+
+	/**
+	 * The findings, in the order they have been first recorded.
+	 */
+	private final Set<Finding> findings = new LinkedHashSet<>();
+
+	/**
+	 * Records a finding, if it has not been recorded yet.
+	 *
+	 * @param call       the call site
+	 * @param target     the target the call has been resolved to
+	 * @param parameter  the index of the sink parameter
+	 * @param verdict    the verdict on the value reaching the sink
+	 * @param targetName the full name of the target of the resolved call
+	 */
+	void add(
+			UnresolvedCall call,
+			CodeMember target,
+			int parameter,
+			Verdict verdict,
+			String targetName) {
+		findings.add(new Finding(call, target, parameter, verdict, targetName));
+	}
+
+	/**
+	 * Yields whether a finding has already been recorded.
+	 *
+	 * @param call      the call site
+	 * @param target    the target the call has been resolved to
+	 * @param parameter the index of the sink parameter
+	 * @param verdict   the verdict on the value reaching the sink
+	 *
+	 * @return {@code true} if that is the case
+	 */
+	boolean contains(
+			UnresolvedCall call,
+			CodeMember target,
+			int parameter,
+			Verdict verdict) {
+		return findings.contains(new Finding(call, target, parameter, verdict, null));
+	}
+
+	/**
+	 * Yields whether all the given findings have already been recorded.
+	 *
+	 * @param call      the call site
+	 * @param target    the target the call has been resolved to
+	 * @param parameter the index of the sink parameter
+	 * @param verdicts  the verdicts on the value reaching the sink
+	 *
+	 * @return {@code true} if that is the case
+	 */
+	boolean containsAll(
+			UnresolvedCall call,
+			CodeMember target,
+			int parameter,
+			Set<Verdict> verdicts) {
+		for (Verdict verdict : verdicts)
+			if (!contains(call, target, parameter, verdict))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Issues a warning for each recorded finding, and forgets all of them.
+	 *
+	 * @param tool   the tool to warn on
+	 * @param policy the policy building the message of a finding
+	 */
+	void emit(
+			CheckToolWithAnalysisResults<?> tool,
+			TaintVerdictPolicy policy) {
+		for (Finding finding : findings)
+			tool.warnOn(finding.call, finding.message(policy));
+		findings.clear();
+	}
+}
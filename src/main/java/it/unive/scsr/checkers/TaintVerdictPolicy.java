@@ -0,0 +1,135 @@
+package it.unive.scsr.checkers;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import it.unive.lisa.analysis.taint.BaseTaint;
+import it.unive.lisa.util.StringUtilities;
+
+/**
+ * The policy used by a {@link BaseTaintChecker} to decide whether a value
+ * reaching a sink deserves a warning, and to describe it.
+ */
+public interface TaintVerdictPolicy {
+
+	/**
+	 * The verdicts on a value reaching a sink.
+	 */
+	enum Verdict {
+		/**
+		 * The value is always tainted.
+		 */
+		ALWAYS,
+
+		/**
+		 * The value may be tainted.
+		 */
+		POSSIBLY
+	}
+
+	/**
+	 * The policy warning about values that may be tainted.
+	 */
+	TaintVerdictPolicy POSSIBLE = new TaintVerdictPolicy() {
+
+		private final Set<Verdict> verdicts = Collections.unmodifiableSet(EnumSet.of(Verdict.POSSIBLY));
+
+		@Override
+		public Set<Verdict> verdicts() {
+			return verdicts;
+		}
+
+		@Override
+		public Verdict verdictOn(
+				BaseTaint<?> taint) {
+			return taint.isPossiblyTainted() ? Verdict.POSSIBLY : null;
+		}
+
+		@Override
+		public String message(
+				Verdict verdict,
+				int parameter,
+				String sink,
+				String target) {
+			return "The value passed for the " + StringUtilities.ordinal(parameter + 1)
+					+ " parameter of this call may be tainted, and it reaches the sink at parameter '"
+					+ sink + "' of " + target;
+		}
+	};
+
+	/**
+	 * The policy warning about values that are always tainted and, separately,
+	 * about values that may be tainted.
+	 */
+	TaintVerdictPolicy DEFINITE = new TaintVerdictPolicy() {
+
+		private final Set<Verdict> verdicts = Collections.unmodifiableSet(EnumSet.allOf(Verdict.class));
+
+		@Override
+		public Set<Verdict> verdicts() {
+			return verdicts;
+		}
+
+		@Override
+		public Verdict verdictOn(
+				BaseTaint<?> taint) {
+			if (taint.isAlwaysTainted())
+				return Verdict.ALWAYS;
+			if (taint.isPossiblyTainted())
+				return Verdict.POSSIBLY;
+			return null;
+		}
+
+		@Override
+		public String message(
+				Verdict verdict,
+				int parameter,
+				String sink,
+				String target) {
+			if (verdict == Verdict.ALWAYS)
+				return "[DEFINITE] The value passed for the " + StringUtilities.ordinal(parameter + 1)
+						+ " parameter of this call is always tainted, and it reaches the sink at parameter '"
+						+ sink + "' of " + target;
+			return "[POSSIBLE] The value passed for the " + StringUtilities.ordinal(parameter + 1)
+					+ " parameter of this call may be tainted, and it reaches the sink at parameter '"
+					+ sink + "' of " + target;
+		}
+	};
+
+	/**
+	 * Yields all the verdicts that this policy can return: once all of them
+	 * have been reached for a parameter of a call, the parameter is no longer
+	 * inspected.
+	 *
+	 * @return the verdicts
+	 */
+	Set<Verdict> verdicts();
+
+	/**
+	 * Yields the verdict on a value reaching a sink.
+	 *
+	 * @param taint the taintedness of the value
+	 *
+	 * @return the verdict, or {@code null} if no warning should be raised
+	 */
+	Verdict verdictOn(
+			BaseTaint<?> taint);
+
+	/**
+	 * Yields the message of the warning raised for a value reaching a sink.
+	 *
+	 * @param verdict   the verdict on the value
+	 * @param parameter the index of the sink parameter, starting from
+	 *                      {@code 0}
+	 * @param sink      the name of the sink parameter
+	 * @param target    the full name of the target of the call
+	 *
+	 * @return the message
+	 */
+	String message(
+			Verdict verdict,
+			int parameter,
+			String sink,
+			String target);
+}
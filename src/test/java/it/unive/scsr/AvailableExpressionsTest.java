@@ -43,4 +43,18 @@ public class AvailableExpressionsTest {
 		// finally, we tell LiSA to analyze the program
 		lisa.run(program);
 	}
+
+	@Test
+	public void testIndexedAE() throws ParsingException, AnalysisException {
+		SerializedResults.run(new DefiniteDataflowDomain<>(new AvailableExpressions()), "inputs/available-expressions.imp", "outputs/ae-sets");
+		SerializedResults.run(new IndexedDefiniteDataflowDomain<>(new AvailableExpressions()), "inputs/available-expressions.imp", "outputs/ae-indexed");
+		SerializedResults.assertSameResults("outputs/ae-sets", "outputs/ae-indexed");
+	}
+
+	@Test
+	public void testBitVectorAE() throws ParsingException, AnalysisException {
+		SerializedResults.run(new DefiniteDataflowDomain<>(new AvailableExpressions()), "inputs/available-expressions.imp", "outputs/ae-sets");
+		SerializedResults.run(BitVectorDataflowDomain.definite(new AvailableExpressions()), "inputs/available-expressions.imp", "outputs/ae-bitvectors");
+		SerializedResults.assertSameResults("outputs/ae-sets", "outputs/ae-bitvectors");
+	}
 }
@@ -1,11 +1,7 @@
 package it.unive.scsr;
 
-import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -16,12 +12,10 @@ import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
 import it.unive.lisa.analysis.dataflow.DefiniteDataflowDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
 import it.unive.lisa.conf.LiSAConfiguration;
-import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
-import it.unive.lisa.outputs.compare.JsonReportComparer;
-import it.unive.lisa.outputs.json.JsonReport;
 import it.unive.lisa.program.Program;
 import it.unive.lisa.util.file.FileManager;
 
@@ -29,15 +23,29 @@ public class CPropTaskEvaluation {
 
 	@Test
 	public void testCP() throws ParsingException, AnalysisException {
+		run(new DefiniteDataflowDomain<>(new CPropSolution()), "cp-eval");
+	}
+
+	@Test
+	public void testIndexedCP() throws ParsingException, AnalysisException {
+		run(new IndexedDefiniteDataflowDomain<>(new CPropSolution()), "cp-eval-indexed");
+	}
+
+	@Test
+	public void testBitVectorCP() throws ParsingException, AnalysisException {
+		run(BitVectorDataflowDomain.definite(new CPropSolution()), "cp-eval-bitvectors");
+	}
+
+	private static <V extends ValueDomain<V>> void run(
+			V domain,
+			String output) throws ParsingException, AnalysisException {
 		Program program = IMPFrontend.processFile("inputs/cp-eval.imp");
 		LiSAConfiguration conf = new DefaultConfiguration();
-		conf.workdir = "outputs/cp-eval";
-		conf.serializeResults = true;
-		conf.jsonOutput = true;
-		conf.analysisGraphs = GraphType.HTML;
+		conf.workdir = "outputs/" + output;
+		OutputProfile.current().apply(conf);
 		conf.abstractState = DefaultConfiguration.simpleState(
 				DefaultConfiguration.defaultHeapDomain(),
-				new DefiniteDataflowDomain<>(new CPropSolution()),
+				domain,
 				DefaultConfiguration.defaultTypeDomain());
 
 		try {
@@ -51,21 +59,8 @@ public class CPropTaskEvaluation {
 		lisa.run(program);
 
 		Path expectedPath = Paths.get("expected", "cp-eval");
-		Path actualPath = Paths.get("outputs", "cp-eval");
+		Path actualPath = Paths.get("outputs", output);
 
-		File expFile = Paths.get(expectedPath.toString(), "report.json").toFile();
-		File actFile = Paths.get(actualPath.toString(), "report.json").toFile();
-		try {
-			JsonReport expected = JsonReport.read(new FileReader(expFile));
-			JsonReport actual = JsonReport.read(new FileReader(actFile));
-			assertTrue("Results are different",
-					JsonReportComparer.compare(expected, actual, expectedPath.toFile(), actualPath.toFile()));
-		} catch (FileNotFoundException e) {
-			e.printStackTrace(System.err);
-			fail("Unable to find report file");
-		} catch (IOException e) {
-			e.printStackTrace(System.err);
-			fail("Unable to compare reports");
-		}
+		SerializedResults.assertExpectedReport(expectedPath, actualPath);
 	}
 }
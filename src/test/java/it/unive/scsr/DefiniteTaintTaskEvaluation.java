@@ -7,28 +7,15 @@ import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.lisa.conf.LiSAConfiguration;
-import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
 import it.unive.lisa.interprocedural.context.FullStackToken;
-import it.unive.lisa.program.ClassUnit;
 import it.unive.lisa.program.Program;
-import it.unive.lisa.program.Unit;
-import it.unive.lisa.program.cfg.CodeMember;
-import it.unive.lisa.program.cfg.Parameter;
 import it.unive.scsr.checkers.DefiniteTaintChecker;
 import it.unive.scsr.checkers.DefiniteTaintSolutionChecker;
 
 public class DefiniteTaintTaskEvaluation {
-	
-	
-	
-	// we define the signatures for matching sources, sanitizers, and sinks
-	String[] sources = new String[] {"source1", "source2"};
-	String[] sanitizers = new String[] {"sanitizer1", "sanitizer2"};
-	String[] sinks = new String[] {"sink1", "sinks"};
-	
 
 	@Test
 	public void testDefiniteTaint() throws ParsingException, AnalysisException {
@@ -36,7 +23,7 @@ public class DefiniteTaintTaskEvaluation {
 		Program program = IMPFrontend.processFile("inputs/definite-taint-eval.imp");
 
 		// we load annotation for identify sources, sanitizer, and sinks during the analysis and checker execution
-		loadAnnotations(program);
+		TaintAnnotations.load(program, DefiniteTaintChecker.SINK_ANNOTATION);
 		
 		// we build a new configuration for the analysis
 		LiSAConfiguration conf = new DefaultConfiguration();
@@ -44,11 +31,11 @@ public class DefiniteTaintTaskEvaluation {
 		// we specify where we want files to be generated
 		conf.workdir = "outputs/definite-taint-eval";
 
-		// we specify the visual format of the analysis results
-		conf.analysisGraphs = GraphType.HTML;
-		
-		// we specify the create a json file containing warnings triggered by the analysis
-		conf.jsonOutput= true;
+		// we specify the outputs to generate: the json report with the warnings
+		// (and html graphs, when running with -Poutputs=full), without the
+		// serialized results that the expected outputs do not contain
+		OutputProfile.current().apply(conf);
+		conf.serializeResults = false;
 
 		// we specify the analysis that we want to execute
 		
@@ -70,53 +57,4 @@ public class DefiniteTaintTaskEvaluation {
 		// finally, we tell LiSA to analyze the program
 		lisa.run(program);
 	}
-
-
-	private void loadAnnotations(Program program) {
-		
-		for(Unit unit : program.getUnits()) {
-			if(unit instanceof ClassUnit) {
-				ClassUnit cunit = (ClassUnit) unit;
-				for(CodeMember cm : cunit.getInstanceCodeMembers(false)) {
-					if(isSource(cm))
-						cm.getDescriptor().getAnnotations().addAnnotation(DefiniteTaintSolution.TAINTED_ANNOTATION);
-					else if(isSanitizer(cm)) 
-						cm.getDescriptor().getAnnotations().addAnnotation(DefiniteTaintSolution.CLEAN_ANNOTATION);
-					else if(isSink(cm))
-						for(Parameter param : cm.getDescriptor().getFormals()) {
-							param.addAnnotation(DefiniteTaintChecker.SINK_ANNOTATION);
-						}		
-				}	
-			}
-		}
-		
-	}
-
-
-	private boolean isSource(CodeMember cm) {
-		for(String signatureName : sources) {
-			if(cm.getDescriptor().getName().equals(signatureName))
-				return true;
-		}
-		return false;
-	}
-	
-
-	private boolean isSanitizer(CodeMember cm) {
-		for(String signatureName : sanitizers) {
-			if(cm.getDescriptor().getName().equals(signatureName))
-				return true;
-		}
-		return false;
-	}
-	
-
-	private boolean isSink(CodeMember cm) {
-		for(String signatureName : sinks) {
-			if(cm.getDescriptor().getName().equals(signatureName))
-				return true;
-		}
-		return false;
-	}
-	
 }
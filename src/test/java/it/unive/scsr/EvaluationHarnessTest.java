@@ -0,0 +1,38 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.unive.scsr.EvaluationHarness.Outcome;
+import it.unive.scsr.EvaluationHarness.Result;
+import it.unive.scsr.EvaluationHarness.Task;
+
+public class EvaluationHarnessTest {
+
+	// the classes of this project, as compiled by gradle
+	private static final String CLASSES = "build/classes/java/main";
+
+	@Test
+	public void testReferenceSolutions() {
+		for (Task task : new Task[] { Task.CPROP, Task.PARITY, Task.DEFINITE_TAINT }) {
+			EvaluationHarness harness = new EvaluationHarness(task, true, "outputs/harness/" + task.getId());
+			// the same candidate twice, to check that loaders are isolated
+			List<Result> results = harness.evaluate(Arrays.asList(CLASSES, CLASSES));
+			assertEquals(2, results.size());
+			for (Result result : results)
+				assertEquals(result.toString(), Outcome.PASS, result.getOutcome());
+		}
+	}
+
+	@Test
+	public void testIncompleteCandidate() {
+		EvaluationHarness harness = new EvaluationHarness(Task.PARITY, false, "outputs/harness/incomplete");
+		// Parity is a placeholder class to be implemented, not a domain
+		List<Result> results = harness.evaluate(Arrays.asList(CLASSES));
+		assertEquals(Outcome.ERROR, results.get(0).getOutcome());
+	}
+}
@@ -0,0 +1,46 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class ImpGeneratorTest {
+
+	@Test
+	public void testGeneratedProgramsParse() throws ParsingException {
+		for (int classes : new int[] { 1, 3 })
+			for (int loopDepth : new int[] { 0, 1, 3 })
+				for (double density : new double[] { 0, 0.3, 1 }) {
+					Program program = new ImpGenerator()
+							.classes(classes)
+							.methods(4)
+							.locals(3)
+							.statements(10)
+							.loopDepth(loopDepth)
+							.branchDensity(density)
+							.taintDensity(1 - density)
+							.parse();
+					// the generated methods, plus source, sanitizer and sink
+					assertEquals(classes * (4 + 3), program.getAllCFGs().size());
+				}
+	}
+
+	@Test
+	public void testGenerationIsDeterministic() {
+		ImpGenerator generator = new ImpGenerator().methods(3).branchDensity(0.5);
+		assertEquals(generator.generate(), generator.generate());
+		assertNotEquals(generator.generate(), generator.seed(7).generate());
+	}
+
+	@Test
+	public void testGeneratedProgramsAnalysis() throws ParsingException, AnalysisException {
+		Program program = new ImpGenerator().methods(5).loopDepth(2).branchDensity(0.3).parse();
+		SerializedResults.run(new ValueEnvironment<>(new Intervals()), program, "outputs/synthetic");
+	}
+}
@@ -1,16 +1,45 @@
 package it.unive.scsr;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
 import org.junit.Test;
 
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
 import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.type.Int32Type;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.util.numeric.MathNumber;
 
 public class IntervalsTest {
 
@@ -40,4 +69,169 @@ public class IntervalsTest {
 		// finally, we tell LiSA to analyze the program
 		lisa.run(program);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testLongIntervals() throws ParsingException, AnalysisException {
+		run(new Intervals(), IMPFrontend.processFile("inputs/intervals.imp"), "outputs/intervals-mathnumber");
+		run(new LongIntervals(), IMPFrontend.processFile("inputs/intervals.imp"), "outputs/intervals-long");
+		SerializedResults.assertSameResults("outputs/intervals-mathnumber", "outputs/intervals-long");
+	}
+
+	@Test
+	public void testLongIntervalsOperations() throws SemanticException {
+		Random random = new Random(5);
+		BinaryOperator[] operators = { NumericNonOverflowingAdd.INSTANCE, NumericNonOverflowingSub.INSTANCE };
+		for (int round = 0; round < 5000; round++) {
+			Intervals left = RandomValues.extremeInterval(random), right = RandomValues.extremeInterval(random);
+			LongIntervals longLeft = LongIntervals.of(left), longRight = LongIntervals.of(right);
+
+			assertEquals(left, longLeft.toIntervals());
+			assertEquals(left.glb(right), longLeft.glb(longRight).toIntervals());
+			assertEquals(left.lub(right), longLeft.lub(longRight).toIntervals());
+			assertEquals(left.widening(right), longLeft.widening(longRight).toIntervals());
+			assertEquals(left.narrowing(right), longLeft.narrowing(longRight).toIntervals());
+			assertEquals(left.lessOrEqual(right), longLeft.lessOrEqual(longRight));
+			assertEquals(left.representation().toString(), longLeft.representation().toString());
+			for (BinaryOperator operator : operators)
+				assertEquals(left.evalBinaryExpression(operator, left, right, null, null),
+						longLeft.evalBinaryExpression(operator, longLeft, longRight, null, null).toIntervals());
+		}
+	}
+
+	private static <T extends NonRelationalValueDomain<T>> void run(
+			T domain,
+			Program program,
+			String workdir) throws AnalysisException {
+		SerializedResults.run(new ValueEnvironment<>(domain), program, workdir);
+	}
+
+	@Test
+	public void testIntervalsCache() throws SemanticException {
+		// the counter is shared with whatever else builds intervals concurrently
+		long hits = Intervals.cacheHits();
+		assertSame(Intervals.of(3, 3), Intervals.of(new MathNumber(3), new MathNumber(3)));
+		assertSame(Intervals.ZERO, Intervals.of(0, 0));
+		assertSame(Intervals.TOP, Intervals.of(MathNumber.MINUS_INFINITY, MathNumber.PLUS_INFINITY));
+		assertSame(Intervals.of(new MathNumber(-5), MathNumber.PLUS_INFINITY),
+				Intervals.of(-5, 5).widening(Intervals.of(-5, 6)));
+		assertSame(Intervals.of(MathNumber.MINUS_INFINITY, new MathNumber(7)),
+				Intervals.of(0, 7).widening(Intervals.of(-1, 7)));
+		assertTrue(Intervals.cacheHits() > hits);
+
+		// intervals that are not cached are equal to the ones built directly
+		assertEquals(new Intervals(1, 2), Intervals.of(1, 2));
+		assertEquals(new Intervals(1000, 1000), Intervals.of(1000, 1000));
+		assertEquals(new Intervals(new MathNumber(0.5), new MathNumber(0.5)),
+				Intervals.of(new MathNumber(0.5), new MathNumber(0.5)));
+		assertEquals(new Intervals(5, 3), Intervals.of(5, 3).glb(Intervals.of(3, 3)).lub(Intervals.of(5, 5)));
+	}
+
+	@Test
+	public void testThresholdWidening() throws SemanticException {
+		Intervals domain = Intervals.withThresholds(Arrays.asList(0, 10, -10, 100));
+		Constant zero = new Constant(Int32Type.INSTANCE, 0, SyntheticLocation.INSTANCE);
+		Intervals widened = domain.evalNonNullConstant(zero, null, null);
+		widened = widened.widening(widened.lub(new Intervals(1, 1)));
+		assertEquals(new Intervals(0, 10), widened);
+		widened = widened.widening(widened.lub(new Intervals(11, 11)));
+		assertEquals(new Intervals(0, 100), widened);
+		widened = widened.widening(widened.lub(new Intervals(-1, 101)));
+		assertEquals(new Intervals(new MathNumber(-10), MathNumber.PLUS_INFINITY), widened);
+		widened = widened.widening(widened.lub(new Intervals(-11, 0)));
+		assertEquals(Intervals.TOP, widened);
+
+		// without thresholds, unstable bounds go directly to infinity
+		assertEquals(new Intervals(MathNumber.ZERO, MathNumber.PLUS_INFINITY),
+				new Intervals(0, 0).widening(new Intervals(0, 1)));
+	}
+
+	@Test
+	public void testThresholdWideningOnPrograms() throws ParsingException, AnalysisException {
+		for (String name : new String[] { "intervals", "pentagons" }) {
+			Program program = IMPFrontend.processFile("inputs/" + name + ".imp");
+			run(Intervals.withThresholds(program), program, "outputs/" + name + "-thresholds");
+		}
+
+		// h gets its last value when the widening is already in place
+		Program program = IMPFrontend.processFile("inputs/widening.imp");
+		Intervals bounded = new Intervals(MathNumber.ZERO, new MathNumber(9));
+		Intervals unbounded = new Intervals(MathNumber.ZERO, MathNumber.PLUS_INFINITY);
+
+		ExitIntervals<ValueEnvironment<Intervals>> plain = new ExitIntervals<>(values -> values);
+		analyze(new ValueEnvironment<>(new Intervals()), program, "outputs/widening", plain);
+		assertEquals(unbounded, plain.of("h"));
+
+		ExitIntervals<ValueEnvironment<Intervals>> thresholds = new ExitIntervals<>(values -> values);
+		analyze(new ValueEnvironment<>(Intervals.withThresholds(program)), program, "outputs/widening-thresholds",
+				thresholds);
+		assertEquals(bounded, thresholds.of("h"));
+
+		ExitIntervals<Pentagons> pentagons = new ExitIntervals<>(values -> values.intervals);
+		analyze(new Pentagons(false), program, "outputs/widening-pentagons", pentagons);
+		assertEquals(unbounded, pentagons.of("h"));
+
+		pentagons = new ExitIntervals<>(values -> values.intervals);
+		analyze(new Pentagons(Intervals.withThresholds(program), false, false), program,
+				"outputs/widening-pentagons-thresholds", pentagons);
+		assertEquals(bounded, pentagons.of("h"));
+	}
+
+	@Test
+	public void testThresholdsSurviveUncachedOperands() throws SemanticException {
+		Intervals domain = Intervals.withThresholds(Arrays.asList(-10, 0, 10));
+		Intervals zero = domain.mk(MathNumber.ZERO, MathNumber.ZERO);
+
+		// widening an interval without thresholds still uses the ones of the
+		// other operand, and the result carries them along
+		Intervals widened = Intervals.ZERO.widening(zero.lub(new Intervals(1, 1)));
+		assertEquals(new Intervals(0, 10), widened);
+		widened = widened.widening(Intervals.of(0, 5).lub(new Intervals(-1, 0)));
+		assertEquals(new Intervals(-10, 10), widened);
+	}
+
+	private static <V extends ValueDomain<V>> void analyze(
+			V values,
+			Program program,
+			String workdir,
+			SemanticCheck<?>... checks) throws AnalysisException {
+		LiSAConfiguration conf = SerializedResults.configuration(values, workdir);
+		conf.semanticChecks.addAll(Arrays.asList(checks));
+		new LiSA(conf).run(program);
+	}
+
+	/**
+	 * A check collecting, by variable name, the intervals at the exit of the
+	 * analyzed CFGs.
+	 */
+	private static final class ExitIntervals<V extends ValueDomain<V>> implements
+			SemanticCheck<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> {
+
+		private final Function<V, ValueEnvironment<Intervals>> intervals;
+
+		private final Map<String, Intervals> exit = new HashMap<>();
+
+		private ExitIntervals(
+				Function<V, ValueEnvironment<Intervals>> intervals) {
+			this.intervals = intervals;
+		}
+
+		@Override
+		public boolean visit(
+				CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> tool,
+				CFG graph) {
+			for (AnalyzedCFG<SimpleAbstractState<PointBasedHeap, V, TypeEnvironment<InferredTypes>>> result : tool
+					.getResultOf(graph)) {
+				ValueEnvironment<Intervals> env = intervals.apply(result.getExitState().getState().getValueState());
+				for (Identifier id : env.getKeys())
+					exit.put(id.getName(), env.getState(id));
+			}
+			return true;
+		}
+
+		private Intervals of(
+				String variable) {
+			assertTrue("No interval for " + variable, exit.containsKey(variable));
+			return exit.get(variable);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.imp.ParsingException;
+
+public class MultiDomainRunnerTest {
+
+	@Test
+	public void testConcurrentDomains() throws ParsingException, AnalysisException {
+		ImpGenerator generator = new ImpGenerator().methods(15).loopDepth(2);
+		String source = generator.generate();
+
+		MultiDomainRunner runner = new MultiDomainRunner(source, null)
+				.add(SerializedResults.configuration(new ValueEnvironment<>(new Intervals()), "outputs/multi/intervals"))
+				.add(SerializedResults.configuration(new ValueEnvironment<>(new Signs()), "outputs/multi/signs"))
+				.add(SerializedResults.configuration(new Pentagons(), "outputs/multi/pentagons"));
+		assertEquals(3, runner.run(3).size());
+
+		new LiSA(SerializedResults.configuration(new ValueEnvironment<>(new Intervals()), "outputs/single/intervals")).run(generator.parse());
+		new LiSA(SerializedResults.configuration(new ValueEnvironment<>(new Signs()), "outputs/single/signs")).run(generator.parse());
+		new LiSA(SerializedResults.configuration(new Pentagons(), "outputs/single/pentagons")).run(generator.parse());
+
+		for (String domain : new String[] { "intervals", "signs", "pentagons" })
+			SerializedResults.assertSameResults("outputs/single/" + domain, "outputs/multi/" + domain);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSharedWorkdir() throws ParsingException {
+		new MultiDomainRunner(new ImpGenerator().generate(), null)
+				.add(SerializedResults.configuration(new ValueEnvironment<>(new Intervals()), "outputs/multi/shared"))
+				.add(SerializedResults.configuration(new ValueEnvironment<>(new Signs()), "outputs/multi/./shared"));
+	}
+}
@@ -0,0 +1,36 @@
+package it.unive.scsr;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class ParallelModularWorstCaseTest {
+
+	@Test
+	public void testParallelIntervals() throws ParsingException, AnalysisException {
+		run(IMPFrontend.processFile("inputs/intervals.imp"), "outputs/intervals-sequential", false);
+		run(IMPFrontend.processFile("inputs/intervals.imp"), "outputs/intervals-parallel", true);
+		SerializedResults.assertSameResults("outputs/intervals-sequential", "outputs/intervals-parallel");
+
+		ImpGenerator generator = new ImpGenerator().classes(2).methods(20).loopDepth(2);
+		run(generator.parse(), "outputs/synthetic-sequential", false);
+		run(generator.parse(), "outputs/synthetic-parallel", true);
+		SerializedResults.assertSameResults("outputs/synthetic-sequential", "outputs/synthetic-parallel");
+	}
+
+	private static void run(
+			Program program,
+			String workdir,
+			boolean parallel) throws AnalysisException {
+		LiSAConfiguration conf = SerializedResults.configuration(new ValueEnvironment<>(new Intervals()), workdir);
+		if (parallel)
+			conf.interproceduralAnalysis = new ParallelModularWorstCase<>(4);
+		new LiSA(conf).run(program);
+	}
+}
@@ -1,11 +1,7 @@
 package it.unive.scsr;
 
-import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,11 +13,8 @@ import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.lisa.conf.LiSAConfiguration;
-import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
-import it.unive.lisa.outputs.compare.JsonReportComparer;
-import it.unive.lisa.outputs.json.JsonReport;
 import it.unive.lisa.program.Program;
 import it.unive.lisa.util.file.FileManager;
 
@@ -32,9 +25,7 @@ public class ParityTaskEvaluation {
 		Program program = IMPFrontend.processFile("inputs/parity-eval.imp");
 		LiSAConfiguration conf = new DefaultConfiguration();
 		conf.workdir = "outputs/parity-eval";
-		conf.serializeResults = true;
-		conf.jsonOutput = true;
-		conf.analysisGraphs = GraphType.HTML;
+		OutputProfile.current().apply(conf);
 		conf.abstractState = DefaultConfiguration.simpleState(
 				DefaultConfiguration.defaultHeapDomain(),
 				new ValueEnvironment<>(new ParitySolution()),
@@ -53,19 +44,6 @@ public class ParityTaskEvaluation {
 		Path expectedPath = Paths.get("expected", "parity-eval");
 		Path actualPath = Paths.get("outputs", "parity-eval");
 
-		File expFile = Paths.get(expectedPath.toString(), "report.json").toFile();
-		File actFile = Paths.get(actualPath.toString(), "report.json").toFile();
-		try {
-			JsonReport expected = JsonReport.read(new FileReader(expFile));
-			JsonReport actual = JsonReport.read(new FileReader(actFile));
-			assertTrue("Results are different",
-					JsonReportComparer.compare(expected, actual, expectedPath.toFile(), actualPath.toFile()));
-		} catch (FileNotFoundException e) {
-			e.printStackTrace(System.err);
-			fail("Unable to find report file");
-		} catch (IOException e) {
-			e.printStackTrace(System.err);
-			fail("Unable to compare reports");
-		}
+		SerializedResults.assertExpectedReport(expectedPath, actualPath);
 	}
 }
@@ -0,0 +1,143 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.type.Int32Type;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.util.numeric.MathNumber;
+
+/**
+ * Differential tests checking that the incremental, index-based, bitset-based
+ * and packed variants of {@link Pentagons} compute the same states as the
+ * original one.
+ */
+public class PentagonsClosureTest {
+
+	@Test
+	public void testIncrementalClosureOnPentagons() throws ParsingException, AnalysisException {
+		SerializedResults.run(new Pentagons(false), "inputs/pentagons.imp", "outputs/penta-full");
+		SerializedResults.run(new Pentagons(true), "inputs/pentagons.imp", "outputs/penta-incremental");
+		SerializedResults.assertSameResults("outputs/penta-full", "outputs/penta-incremental");
+	}
+
+	@Test
+	public void testBitsetBoundsOnPentagons() throws ParsingException, AnalysisException {
+		SerializedResults.run(new Pentagons(false), "inputs/pentagons.imp", "outputs/penta-full");
+		SerializedResults.run(new Pentagons(true, true), "inputs/pentagons.imp", "outputs/penta-bitsets");
+		SerializedResults.assertSameResults("outputs/penta-full", "outputs/penta-bitsets");
+	}
+
+	@Test
+	public void testPackedPentagons() throws ParsingException, AnalysisException {
+		SerializedResults.run(new Pentagons(false), "inputs/pentagons.imp", "outputs/penta-full");
+		SerializedResults.run(new PackedPentagons(), "inputs/pentagons.imp", "outputs/penta-packed");
+		SerializedResults.assertSameResults("outputs/penta-full", "outputs/penta-packed");
+	}
+
+	@Test
+	public void testPackedPentagonsOnSyntheticStates() throws SemanticException {
+		Random random = new Random(3);
+		List<Identifier> ids = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			ids.add(new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE));
+		PackedPentagons packed = new PackedPentagons();
+
+		for (int round = 0; round < 200; round++) {
+			Pentagons first = RandomValues.pentagon(random, ids, new UpperBounds(true)), second = RandomValues.pentagon(random, ids, new UpperBounds(true));
+			PackedPentagons packedFirst = packed.pack(first), packedSecond = packed.pack(second);
+
+			assertEquals(first, packedFirst.toPentagons());
+			assertEquals(first.closure(), packedFirst.closure().toPentagons());
+			assertEquals(first.lub(second), packedFirst.lub(packedSecond).toPentagons());
+			assertEquals(first.widening(second), packedFirst.widening(packedSecond).toPentagons());
+			assertEquals(first.lessOrEqual(second), packedFirst.lessOrEqual(packedSecond));
+			assertEquals(first.lessOrEqual(first.lub(second)),
+					packedFirst.lessOrEqual(packedFirst.lub(packedSecond)));
+		}
+	}
+
+	@Test
+	public void testIncrementalClosureOnSyntheticStates() throws SemanticException {
+		Random random = new Random(42);
+		for (int size : new int[] { 10, 100, 500 })
+			for (int round = 0; round < 20; round++) {
+				List<Identifier> ids = new ArrayList<>();
+				for (int i = 0; i < size; i++)
+					ids.add(new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE));
+
+				ValueEnvironment<Intervals> intervals = new ValueEnvironment<>(new Intervals());
+				ValueEnvironment<UpperBounds> bounds = new ValueEnvironment<>(new UpperBounds(true));
+				for (Identifier id : ids) {
+					intervals = intervals.putState(id, RandomValues.interval(random));
+					bounds = bounds.putState(id, RandomValues.bounds(random, ids, new UpperBounds(true)));
+				}
+
+				// we start from a closed state, and we change some of its
+				// entries as an assignment would do
+				Pentagons closed = new Pentagons(bounds, intervals).closure();
+				Set<Identifier> changed = new HashSet<>();
+				int changes = 1 + random.nextInt(3);
+				for (int i = 0; i < changes; i++)
+					changed.add(ids.get(random.nextInt(size)));
+				Identifier fresh = new Variable(Int32Type.INSTANCE, "fresh", SyntheticLocation.INSTANCE);
+				changed.add(fresh);
+
+				intervals = closed.intervals;
+				bounds = closed.upperbounds;
+				for (Identifier id : changed) {
+					intervals = intervals.putState(id, RandomValues.interval(random));
+					bounds = bounds.putState(id, RandomValues.bounds(random, ids, new UpperBounds(true)));
+				}
+
+				Pentagons state = new Pentagons(bounds, intervals);
+				assertEquals("Incremental closure differs from the full one with " + size + " variables",
+						state.closure(), state.closure(changed));
+				assertEquals("Incremental closure is not a no-op on closed states",
+						closed, closed.closure(Collections.singleton(ids.get(0))));
+			}
+	}
+
+	@Test
+	public void testEndpointIndexMatchesPairwiseComparison() {
+		Random random = new Random(7);
+		List<Identifier> ids = new ArrayList<>();
+		ValueEnvironment<Intervals> intervals = new ValueEnvironment<>(new Intervals());
+		for (int i = 0; i < 300; i++) {
+			Identifier id = new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE);
+			ids.add(id);
+			intervals = intervals.putState(id, RandomValues.interval(random));
+		}
+
+		EndpointIndex index = EndpointIndex.of(intervals);
+		for (int round = 0; round < 50; round++) {
+			// the updated index must behave as a freshly built one
+			Identifier changed = ids.get(random.nextInt(ids.size()));
+			intervals = intervals.putState(changed, RandomValues.interval(random));
+			index = index.update(changed, intervals.getState(changed));
+
+			for (Identifier id1 : ids) {
+				MathNumber high = intervals.getState(id1).interval.getHigh();
+				Set<Identifier> expected = new HashSet<>();
+				for (Identifier id2 : ids)
+					if (!id1.equals(id2) && high.compareTo(intervals.getState(id2).interval.getLow()) < 0)
+						expected.add(id2);
+				assertEquals(expected, index.above(high, id1));
+			}
+		}
+	}
+}
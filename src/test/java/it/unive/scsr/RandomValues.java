@@ -0,0 +1,126 @@
+package it.unive.scsr;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.util.numeric.MathNumber;
+
+/**
+ * Generators of random lattice elements, shared by the tests and the
+ * benchmarks (that compile against the test classes).
+ */
+final class RandomValues {
+
+	private RandomValues() {
+	}
+
+	/**
+	 * Yields a random interval, that is bounded on both sides in most cases,
+	 * and unbounded on one side otherwise.
+	 *
+	 * @param random the source of randomness
+	 *
+	 * @return the interval
+	 */
+	static Intervals interval(
+			Random random) {
+		int low = random.nextInt(200) - 100;
+		int high = low + random.nextInt(50);
+		switch (random.nextInt(8)) {
+		case 0:
+			return new Intervals(MathNumber.MINUS_INFINITY, new MathNumber(high));
+		case 1:
+			return new Intervals(new MathNumber(low), MathNumber.PLUS_INFINITY);
+		default:
+			return new Intervals(low, high);
+		}
+	}
+
+	/**
+	 * Yields a random interval, that might also be top, bottom, close to the
+	 * bounds of {@code long}s or not representable with them.
+	 *
+	 * @param random the source of randomness
+	 *
+	 * @return the interval
+	 */
+	static Intervals extremeInterval(
+			Random random) {
+		switch (random.nextInt(10)) {
+		case 0:
+			return Intervals.TOP;
+		case 1:
+			return Intervals.BOTTOM;
+		case 2:
+			return new Intervals(MathNumber.MINUS_INFINITY, new MathNumber(random.nextInt(100)));
+		case 3:
+			return new Intervals(new MathNumber(random.nextInt(100)), MathNumber.PLUS_INFINITY);
+		case 4:
+			// close to overflowing
+			long high = Long.MAX_VALUE - random.nextInt(10);
+			return new Intervals(new MathNumber(high - random.nextInt(10)), new MathNumber(high));
+		case 5:
+			long low = Long.MIN_VALUE + random.nextInt(10);
+			return new Intervals(new MathNumber(low), new MathNumber(low + random.nextInt(10)));
+		case 6:
+			// not representable with longs
+			MathNumber wide = new MathNumber(Long.MAX_VALUE).add(new MathNumber(random.nextInt(100)));
+			return new Intervals(MathNumber.ZERO, wide);
+		default:
+			int l = random.nextInt(200) - 100;
+			return new Intervals(l, l + random.nextInt(50));
+		}
+	}
+
+	/**
+	 * Yields random upper bounds among the given identifiers, built with the
+	 * same representation of the given element (e.g., bitsets if it has been
+	 * built with an {@link IdentifierTable}).
+	 *
+	 * @param random  the source of randomness
+	 * @param ids     the identifiers
+	 * @param lattice an element of the domain
+	 *
+	 * @return the upper bounds
+	 */
+	static UpperBounds bounds(
+			Random random,
+			List<Identifier> ids,
+			UpperBounds lattice) {
+		if (random.nextInt(4) == 0)
+			return lattice.top();
+		Set<Identifier> bounds = new HashSet<>();
+		int count = 1 + random.nextInt(3);
+		for (int i = 0; i < count; i++)
+			bounds.add(ids.get(random.nextInt(ids.size())));
+		return lattice.of(bounds);
+	}
+
+	/**
+	 * Yields a random pentagon over the given identifiers, whose upper bounds
+	 * have the same representation of the given element.
+	 *
+	 * @param random  the source of randomness
+	 * @param ids     the identifiers
+	 * @param lattice an element of the upper bounds domain
+	 *
+	 * @return the pentagon
+	 */
+	static Pentagons pentagon(
+			Random random,
+			List<Identifier> ids,
+			UpperBounds lattice) {
+		ValueEnvironment<Intervals> intervals = new ValueEnvironment<>(new Intervals());
+		ValueEnvironment<UpperBounds> bounds = new ValueEnvironment<>(lattice.top());
+		for (Identifier id : ids) {
+			intervals = intervals.putState(id, interval(random));
+			if (random.nextBoolean())
+				bounds = bounds.putState(id, bounds(random, ids, lattice));
+		}
+		return new Pentagons(bounds, intervals);
+	}
+}
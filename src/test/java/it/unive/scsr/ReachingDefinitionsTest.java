@@ -1,16 +1,37 @@
 package it.unive.scsr;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+
 import org.junit.Test;
 
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
 import it.unive.lisa.analysis.dataflow.PossibleDataflowDomain;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.lattices.ExpressionSet;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
 import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.type.Int32Type;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Variable;
 
 public class ReachingDefinitionsTest {
 
@@ -43,4 +64,54 @@ public class ReachingDefinitionsTest {
 		// finally, we tell LiSA to analyze the program
 		lisa.run(program);
 	}
+
+	@Test
+	public void testIndexedRD() throws ParsingException, AnalysisException {
+		SerializedResults.run(new PossibleDataflowDomain<>(new ReachingDefinitions()), "inputs/reaching-definitions.imp", "outputs/rd-sets");
+		SerializedResults.run(new IndexedPossibleDataflowDomain<>(new ReachingDefinitions()), "inputs/reaching-definitions.imp", "outputs/rd-indexed");
+		SerializedResults.assertSameResults("outputs/rd-sets", "outputs/rd-indexed");
+	}
+
+	@Test
+	public void testBitVectorRD() throws ParsingException, AnalysisException {
+		SerializedResults.run(new PossibleDataflowDomain<>(new ReachingDefinitions()), "inputs/reaching-definitions.imp", "outputs/rd-sets");
+		SerializedResults.run(BitVectorDataflowDomain.possible(new ReachingDefinitions()), "inputs/reaching-definitions.imp", "outputs/rd-bitvectors");
+		SerializedResults.assertSameResults("outputs/rd-sets", "outputs/rd-bitvectors");
+	}
+
+	@Test
+	public void testIndexIsCarriedOver() throws ParsingException, SemanticException {
+		Program program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+		Iterator<Statement> nodes = program.getAllCFGs().iterator().next().getNodes().iterator();
+		Statement first = nodes.next(), second = nodes.next(), third = nodes.next();
+		Variable x = new Variable(Int32Type.INSTANCE, "x", SyntheticLocation.INSTANCE);
+		Variable y = new Variable(Int32Type.INSTANCE, "y", SyntheticLocation.INSTANCE);
+		Constant one = new Constant(Int32Type.INSTANCE, 1, SyntheticLocation.INSTANCE);
+
+		PossibleDataflowDomain<ReachingDefinitions> domain = new IndexedPossibleDataflowDomain<>(
+				new ReachingDefinitions());
+		AnalysisState<SimpleAbstractState<PointBasedHeap, PossibleDataflowDomain<ReachingDefinitions>,
+				TypeEnvironment<InferredTypes>>> state = new AnalysisState<>(
+						DefaultConfiguration.simpleState(
+								new PointBasedHeap(),
+								domain,
+								DefaultConfiguration.defaultTypeDomain()),
+						new ExpressionSet());
+		state = state.assign(x, one, first).assign(y, one, second);
+		IndexedPossibleDataflowDomain<ReachingDefinitions> before =
+				(IndexedPossibleDataflowDomain<ReachingDefinitions>) state.getState().getValueState();
+		IndexedPossibleDataflowDomain<ReachingDefinitions> after =
+				(IndexedPossibleDataflowDomain<ReachingDefinitions>) state.assign(x, one, third).getState()
+						.getValueState();
+
+		// the entry of y has been carried over as-is, while the one of x has
+		// been replaced
+		assertSame(before.getDataflowElements(y), after.getDataflowElements(y));
+		assertEquals(Collections.singletonList(new ReachingDefinitions(x, first.getLocation())),
+				new ArrayList<>(before.getDataflowElements(x)));
+		assertEquals(Collections.singletonList(new ReachingDefinitions(x, third.getLocation())),
+				new ArrayList<>(after.getDataflowElements(x)));
+		assertEquals(new HashSet<>(Arrays.asList(new ReachingDefinitions(x, third.getLocation()),
+				new ReachingDefinitions(y, second.getLocation()))), after.getDataflowElements());
+	}
 }
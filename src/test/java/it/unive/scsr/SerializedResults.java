@@ -0,0 +1,219 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.util.file.FileManager;
+import it.unive.scsr.StreamingReportComparer.Difference;
+
+/**
+ * Utilities for differential tests, that run two analyses that are expected to
+ * compute the same results and compare the per-CFG results serialized by LiSA
+ * ({@code conf.serializeResults = true}), together with the fixture running
+ * such analyses.
+ */
+final class SerializedResults {
+
+	private SerializedResults() {
+	}
+
+	/**
+	 * Builds the configuration of an analysis that serializes its results,
+	 * without dumping graphs, in the given working directory. The working
+	 * directory is emptied beforehand, so that results of previous runs
+	 * cannot be mistaken for the ones of this run.
+	 * 
+	 * @param <V>     the type of value domain
+	 * @param values  the value domain of the analysis
+	 * @param workdir the working directory of the analysis
+	 * 
+	 * @return the configuration
+	 */
+	static <V extends ValueDomain<V>> LiSAConfiguration configuration(
+			V values,
+			String workdir) {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir;
+		conf.serializeResults = true;
+		conf.analysisGraphs = GraphType.NONE;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				values,
+				DefaultConfiguration.defaultTypeDomain());
+
+		try {
+			FileManager.forceDeleteFolder(conf.workdir);
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			fail("Cannot delete working directory '" + conf.workdir + "': " + e.getMessage());
+		}
+		return conf;
+	}
+
+	/**
+	 * Analyzes the given program with the {@link #configuration(ValueDomain,
+	 * String) configuration} built for the given value domain and working
+	 * directory.
+	 * 
+	 * @param <V>     the type of value domain
+	 * @param values  the value domain of the analysis
+	 * @param program the program to analyze
+	 * @param workdir the working directory of the analysis
+	 * 
+	 * @throws AnalysisException if the analysis fails
+	 */
+	static <V extends ValueDomain<V>> void run(
+			V values,
+			Program program,
+			String workdir) throws AnalysisException {
+		new LiSA(configuration(values, workdir)).run(program);
+	}
+
+	/**
+	 * Parses the given IMP file and {@link #run(ValueDomain, Program, String)
+	 * analyzes} the resulting program.
+	 * 
+	 * @param <V>     the type of value domain
+	 * @param values  the value domain of the analysis
+	 * @param file    the path of the IMP file to analyze
+	 * @param workdir the working directory of the analysis
+	 * 
+	 * @throws ParsingException  if the file cannot be parsed
+	 * @throws AnalysisException if the analysis fails
+	 */
+	static <V extends ValueDomain<V>> void run(
+			V values,
+			String file,
+			String workdir) throws ParsingException, AnalysisException {
+		run(values, IMPFrontend.processFile(file), workdir);
+	}
+
+	/**
+	 * Asserts that the two working directories contain the same serialized
+	 * CFGs, with the same contents. The {@code report.json} file is ignored,
+	 * as it contains run-specific information (e.g., timings and the working
+	 * directory itself).
+	 * 
+	 * @param expectedWorkdir the working directory of the reference analysis
+	 * @param actualWorkdir   the working directory of the analysis under test
+	 */
+	static void assertSameResults(
+			String expectedWorkdir,
+			String actualWorkdir) {
+		SortedSet<String> expected = serializedFiles(expectedWorkdir);
+		SortedSet<String> actual = serializedFiles(actualWorkdir);
+		assertEquals("Different CFGs have been serialized", expected, actual);
+
+		for (String file : expected)
+			try {
+				assertArrayEquals("Results are different for " + file,
+						Files.readAllBytes(Paths.get(expectedWorkdir, file)),
+						Files.readAllBytes(Paths.get(actualWorkdir, file)));
+			} catch (IOException e) {
+				e.printStackTrace(System.err);
+				fail("Unable to read " + file);
+			}
+	}
+
+	/**
+	 * Asserts that the two working directories contain the same results,
+	 * comparing their json reports and serialized CFGs with a
+	 * {@link StreamingReportComparer}. Unlike
+	 * {@link #assertSameResults(String, String)}, the warnings are compared
+	 * too, and the two directories might have been generated with different
+	 * {@link OutputProfile}s.
+	 * 
+	 * @param expectedWorkdir the working directory of the reference analysis
+	 * @param actualWorkdir   the working directory of the analysis under test
+	 */
+	static void assertSameReport(
+			Path expectedWorkdir,
+			Path actualWorkdir) {
+		try {
+			List<Difference> differences = new StreamingReportComparer(10).compare(expectedWorkdir, actualWorkdir);
+			if (!differences.isEmpty())
+				fail("Results are different:" + differences.stream().map(d -> "\n\t" + d)
+						.collect(Collectors.joining()));
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			fail("Unable to compare reports");
+		}
+	}
+
+	/**
+	 * Asserts that the results in the given working directory are the
+	 * expected ones. With the {@link OutputProfile#FULL} profile, that
+	 * generates the same files of the expected results, the two directories
+	 * are compared with a {@link JsonReportComparer}, including the html
+	 * graphs; otherwise, they are compared as in
+	 * {@link #assertSameReport(Path, Path)}.
+	 * 
+	 * @param expectedWorkdir the directory of the expected results
+	 * @param actualWorkdir   the working directory of the analysis under test
+	 */
+	static void assertExpectedReport(
+			Path expectedWorkdir,
+			Path actualWorkdir) {
+		if (OutputProfile.current() != OutputProfile.FULL) {
+			assertSameReport(expectedWorkdir, actualWorkdir);
+			return;
+		}
+
+		File expFile = expectedWorkdir.resolve("report.json").toFile();
+		File actFile = actualWorkdir.resolve("report.json").toFile();
+		try (Reader expReader = new FileReader(expFile);
+				Reader actReader = new FileReader(actFile)) {
+			JsonReport expected = JsonReport.read(expReader);
+			JsonReport actual = JsonReport.read(actReader);
+			assertTrue("Results are different",
+					JsonReportComparer.compare(expected, actual, expectedWorkdir.toFile(), actualWorkdir.toFile()));
+		} catch (FileNotFoundException e) {
+			e.printStackTrace(System.err);
+			fail("Unable to find report file");
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			fail("Unable to compare reports");
+		}
+	}
+
+	private static SortedSet<String> serializedFiles(
+			String workdir) {
+		SortedSet<String> result = new TreeSet<>();
+		try (Stream<Path> files = Files.list(Paths.get(workdir))) {
+			files.map(p -> p.getFileName().toString())
+					.filter(name -> name.endsWith(".json") && !name.equals("report.json"))
+					.forEach(result::add);
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			fail("Unable to list the files in " + workdir);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,83 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import it.unive.lisa.util.file.FileManager;
+import it.unive.scsr.StreamingReportComparer.Difference;
+
+public class StreamingReportComparerTest {
+
+	private static final Path EXPECTED = Paths.get("expected", "cp-eval");
+
+	private static final String F0 = "untyped_cp.f0(cp__this).json";
+
+	private static final String F1 = "untyped_cp.f1(cp__this).json";
+
+	@Test
+	public void testSameResults() throws IOException {
+		assertTrue(new StreamingReportComparer(10).compare(EXPECTED, EXPECTED).isEmpty());
+	}
+
+	@Test
+	public void testDifferences() throws IOException {
+		Path actual = copy("outputs/streaming-comparison");
+		replaceFirst(actual.resolve(F0), "\"value\":[[\"x\",\"10\"]]", "\"value\":[[\"x\",\"11\"]]");
+		replaceFirst(actual.resolve(F1), "\"heap\":\"monolith\"", "\"heap\":\"other\"");
+
+		List<Difference> differences = new StreamingReportComparer(10).compare(EXPECTED, actual);
+		assertEquals(2, differences.size());
+		Difference first = differences.get(0);
+		assertEquals(F0, first.getFile());
+		assertEquals("untyped cp::f0(cp* this)", first.getCfg());
+		assertEquals("0", first.getNode());
+		assertEquals("descriptions[0].description.state.value[0][1]", first.getPath());
+		assertEquals(F1, differences.get(1).getFile());
+
+		// early exit
+		assertEquals(1, new StreamingReportComparer(1).compare(EXPECTED, actual).size());
+	}
+
+	@Test
+	public void testMissingFile() throws IOException {
+		Path actual = copy("outputs/streaming-missing");
+		Files.delete(actual.resolve(F1));
+
+		List<Difference> differences = new StreamingReportComparer(10).compare(EXPECTED, actual);
+		assertEquals(1, differences.size());
+		assertEquals(F1, differences.get(0).getFile());
+	}
+
+	private static Path copy(
+			String workdir) throws IOException {
+		FileManager.forceDeleteFolder(workdir);
+		Path target = Files.createDirectories(Paths.get(workdir));
+		try (Stream<Path> files = Files.list(EXPECTED)) {
+			for (Path file : (Iterable<Path>) files::iterator)
+				if (file.toString().endsWith(".json"))
+					Files.copy(file, target.resolve(file.getFileName()));
+		}
+		return target;
+	}
+
+	private static void replaceFirst(
+			Path file,
+			String target,
+			String replacement) throws IOException {
+		String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		int index = content.indexOf(target);
+		assertTrue("Cannot find " + target + " in " + file, index >= 0);
+		content = content.substring(0, index) + replacement + content.substring(index + target.length());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -1,33 +1,28 @@
 package it.unive.scsr;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.SemanticCheck;
 import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
 import it.unive.lisa.interprocedural.context.FullStackToken;
-import it.unive.lisa.program.ClassUnit;
 import it.unive.lisa.program.Program;
-import it.unive.lisa.program.Unit;
-import it.unive.lisa.program.cfg.CodeMember;
-import it.unive.lisa.program.cfg.Parameter;
+import it.unive.scsr.checkers.BaseTaintChecker;
 import it.unive.scsr.checkers.TaintChecker;
+import it.unive.scsr.checkers.TaintVerdictPolicy;
 
 public class TaintTest {
-	
-	
-	
-	// we define the signatures for matching sources, sanitizers, and sinks
-	String[] sources = new String[] {"source1", "source2"};
-	String[] sanitizers = new String[] {"sanitizer1", "sanitizer2"};
-	String[] sinks = new String[] {"sink1", "sinks"};
-	
 
 	@Test
 	public void testTaint() throws ParsingException, AnalysisException {
@@ -35,7 +30,7 @@ public class TaintTest {
 		Program program = IMPFrontend.processFile("inputs/taint.imp");
 
 		// we load annotation for identify sources, sanitizer, and sinks during the analysis and checker execution
-		loadAnnotations(program);
+		TaintAnnotations.load(program, TaintChecker.SINK_ANNOTATION);
 		
 		// we build a new configuration for the analysis
 		LiSAConfiguration conf = new DefaultConfiguration();
@@ -70,52 +65,41 @@ public class TaintTest {
 		lisa.run(program);
 	}
 
-
-	private void loadAnnotations(Program program) {
-		
-		for(Unit unit : program.getUnits()) {
-			if(unit instanceof ClassUnit) {
-				ClassUnit cunit = (ClassUnit) unit;
-				for(CodeMember cm : cunit.getInstanceCodeMembers(false)) {
-					if(isSource(cm))
-						cm.getDescriptor().getAnnotations().addAnnotation(Taint.TAINTED_ANNOTATION);
-					else if(isSanitizer(cm)) 
-						cm.getDescriptor().getAnnotations().addAnnotation(Taint.CLEAN_ANNOTATION);
-					else if(isSink(cm))
-						for(Parameter param : cm.getDescriptor().getFormals()) {
-							param.addAnnotation(TaintChecker.SINK_ANNOTATION);
-						}		
-				}	
-			}
-		}
-		
+	@Test
+	public void testIndexedTaint() throws ParsingException, AnalysisException {
+		// the checker inspecting only the calls to sinks must raise the same
+		// warnings of the one inspecting every call
+		run(new ValueEnvironment<>(new Taint()), "outputs/taint-exhaustive", new TaintChecker(false));
+		run(new ValueEnvironment<>(new Taint()), "outputs/taint-indexed", new TaintChecker(true));
+		SerializedResults.assertSameReport(Paths.get("outputs/taint-exhaustive"), Paths.get("outputs/taint-indexed"));
 	}
 
-
-	private boolean isSource(CodeMember cm) {
-		for(String signatureName : sources) {
-			if(cm.getDescriptor().getName().equals(signatureName))
-				return true;
-		}
-		return false;
+	@Test
+	public void testPackedTaint() throws ParsingException, AnalysisException {
+		// the packed environment must compute the same results and raise the
+		// same warnings of the map-based one
+		run(new ValueEnvironment<>(new Taint()), "outputs/taint-map", new TaintChecker());
+		run(new PackedTaintEnvironment<>(new Taint()), "outputs/taint-packed",
+				new BaseTaintChecker<Taint, PackedTaintEnvironment<Taint>>(TaintVerdictPolicy.POSSIBLE, true,
+						PackedTaintEnvironment::eval));
+		SerializedResults.assertSameReport(Paths.get("outputs/taint-map"), Paths.get("outputs/taint-packed"));
 	}
-	
 
-	private boolean isSanitizer(CodeMember cm) {
-		for(String signatureName : sanitizers) {
-			if(cm.getDescriptor().getName().equals(signatureName))
-				return true;
-		}
-		return false;
-	}
-	
+	private <V extends ValueDomain<V>> void run(V values, String workdir, SemanticCheck<?>... checks)
+			throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/taint.imp");
+		TaintAnnotations.load(program, TaintChecker.SINK_ANNOTATION);
+
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir;
+		OutputProfile.current().apply(conf);
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				values,
+				DefaultConfiguration.defaultTypeDomain());
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+		conf.semanticChecks.addAll(Arrays.asList(checks));
 
-	private boolean isSink(CodeMember cm) {
-		for(String signatureName : sinks) {
-			if(cm.getDescriptor().getName().equals(signatureName))
-				return true;
-		}
-		return false;
+		new LiSA(conf).run(program);
 	}
-	
 }
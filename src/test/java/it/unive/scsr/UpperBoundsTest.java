@@ -1,16 +1,29 @@
 package it.unive.scsr;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Test;
 
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.SemanticException;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.type.Int32Type;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
 
 public class UpperBoundsTest {
 
@@ -41,4 +54,66 @@ public class UpperBoundsTest {
 		// finally, we tell LiSA to analyze the program
 		lisa.run(program);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testBitsetRepresentation() throws ParsingException, AnalysisException {
+		run(new UpperBounds(true), "outputs/upperbounds-sets");
+		run(new UpperBounds(new IdentifierTable()), "outputs/upperbounds-bitsets");
+		SerializedResults.assertSameResults("outputs/upperbounds-sets", "outputs/upperbounds-bitsets");
+	}
+
+	@Test
+	public void testBitsetLatticeOperations() throws SemanticException {
+		Random random = new Random(11);
+		List<Identifier> ids = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+			ids.add(new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE));
+		UpperBounds bitsets = new UpperBounds(new IdentifierTable());
+
+		for (int round = 0; round < 500; round++) {
+			Set<Identifier> left = randomSet(random, ids);
+			Set<Identifier> right = randomSet(random, ids);
+			UpperBounds ls = new UpperBounds(left), rs = new UpperBounds(right);
+			UpperBounds lb = bitsets.of(left), rb = bitsets.of(right);
+
+			assertEquals(ls, lb);
+			assertEquals(ls.hashCode(), lb.hashCode());
+			assertEquals(ls.glb(rs), lb.glb(rb));
+			assertEquals(ls.lub(rs), lb.lub(rb));
+			assertEquals(ls.widening(rs), lb.widening(rb));
+			assertEquals(ls.lessOrEqual(rs), lb.lessOrEqual(rb));
+			// mixed representations
+			assertEquals(ls.glb(rs), lb.glb(rs));
+			assertEquals(ls.lub(rs), ls.lub(rb));
+
+			Identifier id = ids.get(random.nextInt(ids.size()));
+			assertEquals(ls.contains(id), lb.contains(id));
+			assertEquals(ls.add(id), lb.add(id));
+			assertEquals(left, toSet(lb));
+		}
+	}
+
+	private static Set<Identifier> randomSet(
+			Random random,
+			List<Identifier> ids) {
+		Set<Identifier> result = new HashSet<>();
+		int count = 1 + random.nextInt(20);
+		for (int i = 0; i < count; i++)
+			result.add(ids.get(random.nextInt(ids.size())));
+		return result;
+	}
+
+	private static Set<Identifier> toSet(
+			UpperBounds bounds) {
+		Set<Identifier> result = new HashSet<>();
+		for (Identifier id : bounds)
+			result.add(id);
+		return result;
+	}
+
+	private static void run(
+			UpperBounds domain,
+			String workdir) throws ParsingException, AnalysisException {
+		SerializedResults.run(new ValueEnvironment<>(domain), "inputs/upperbounds.imp", workdir);
+	}
+}
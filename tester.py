@@ -3,13 +3,36 @@ import os
 import shutil
 import subprocess
 import sys
+import threading
 import pandas
+from concurrent.futures import ThreadPoolExecutor
+
+# usage: tester.py <test> <output folder> [-j <jobs>] [-c]
+#        tester.py cleanup
+# with -j, each branch is evaluated in its own git worktree, and up to <jobs>
+# branches are built and tested at the same time (0 means one per core)
+# with -c, dependencies are resolved once before evaluating the branches, and
+# each branch is then built and tested with a single offline gradle invocation
+# that reuses the warm daemon and the local build cache
+cached = '-c' in sys.argv
+if cached:
+	sys.argv.remove('-c')
+
+jobs = None
+if '-j' in sys.argv:
+	index = sys.argv.index('-j')
+	if index + 1 >= len(sys.argv) or not sys.argv[index + 1].isdigit():
+		print('-j requires the number of branches to evaluate concurrently')
+		exit()
+	jobs = int(sys.argv[index + 1]) or os.cpu_count()
+	del sys.argv[index:index + 2]
 
 if len(sys.argv) != 3 and (len(sys.argv) != 2 and sys.argv[1] == 'cleanup'):
 	print('name of the test to execute and output folder missing')
 	exit()
 
 logdir = 'eval-logs'
+worktrees = 'eval-worktrees'
 if os.path.isdir(logdir):
 	shutil.rmtree(logdir)
 
@@ -21,90 +44,161 @@ df = pandas.DataFrame({'branch': [], 'id': [], 'compile': [], 'test': []})
 
 res = subprocess.run(['git', 'for-each-ref', "--format='%(refname:lstrip=3)'", 'refs/remotes/origin/'], capture_output=True)
 
-for source in res.stdout.decode().split('\n'):
-	if source == '':
-		continue
-	if source[0] == '\'' and source[-1] == '\'':
-		source = source[1:-1]
-	if source == 'master':
-		continue
-
-	pid = source.split('-')[0]
-	position = len(df.index)
-	df.loc[position] = [source, pid, 0, 0]
-
-	if sys.argv[1] == 'cleanup':
-		subprocess.run(['git', 'branch', '-D', source])
-		continue 
+# creating and removing worktrees updates the shared repository metadata
+worktree_lock = threading.Lock()
+
+def section(log, name):
+	log.write('###############################################################################')
+	log.write(name)
+	log.write('###############################################################################')
+	log.flush()
+
+# tasks that are not executed by assemble: their failure is a test failure
+test_tasks = [':compileTestJava', ':processTestResources', ':testClasses', ':test']
+
+def compile_failed(output):
+	# with a single invocation, the failed tasks tell build and test failures apart
+	for line in output.split('\n'):
+		line = line.strip()
+		if line.startswith('> Task ') and line.endswith(' FAILED'):
+			if line.split()[2] not in test_tasks:
+				return True
+	# no failed task (e.g., the build script itself failed)
+	return not any(line.startswith('> Task :test') for line in output.split('\n'))
+
+def build_and_test(source, cwd, log):
+	# returns a pair (compiled, tested) of 0/1 flags
+	section(log, 'MERGE')
+	print(f'++ merging master into {source}')
+	my_env = os.environ.copy()
+	my_env['GIT_MERGE_AUTOEDIT'] = 'no'
+	res = subprocess.run(['git', 'merge', '-Xtheirs', 'master'], stdout = log, stderr = log, env=my_env, cwd=cwd)
+	if res.returncode != 0:
+		print(f'###### merge failed on {source}')
+		return 0, 0
+
+	if cached:
+		section(log, 'BUILD AND TEST')
+		print(f'++ building and testing {source}')
+		res = subprocess.run(['./gradlew', '--daemon', '--offline', '--build-cache', '--console=plain',
+			'assemble', 'test', '--tests', sys.argv[1]], stdout = log, stderr = log, cwd=cwd)
+		if res.returncode != 0:
+			with open(log.name) as output:
+				failed = compile_failed(output.read())
+			if failed:
+				print(f'###### build failed on {source}')
+				return 0, 0
+			print(f'###### test failed on {source}')
+			return 1, 0
+	else:
+		section(log, 'BUILD')
+		print(f'++ building {source}')
+		res = subprocess.run(['./gradlew', 'assemble'], stdout = log, stderr = log, cwd=cwd)
+		if res.returncode != 0:
+			print(f'###### build failed on {source}')
+			return 0, 0
 
+		section(log, 'TEST')
+		print(f'++ testing {source}')
+		res = subprocess.run(['./gradlew', 'test', '--tests', sys.argv[1]], stdout = log, stderr = log, cwd=cwd)
+		if res.returncode != 0:
+			print(f'###### test failed on {source}')
+			return 1, 0
+
+	section(log, 'COPY')
+	outdir = os.path.join(cwd, 'outputs', sys.argv[2])
+	if os.path.isdir(outdir):
+		print(f'++ copying output files of {source}')
+		shutil.copytree(outdir, logdir + '/' + source)
+	else:
+		print(f'++ no output files to copy for {source}')
+	return 1, 1
+
+def evaluate_sequential(source):
 	logfile = logdir + '/' + source + '.log'
 	with open(logfile, 'w') as log:
-		log.write('###############################################################################')
-		log.write('CHECKOUT')
-		log.write('###############################################################################')
+		section(log, 'CHECKOUT')
 		print(f'+ checking out branch: {source}')
 		res = subprocess.run(['git', 'checkout', source], stdout = log, stderr = log)
 		if res.returncode != 0:
 			print(f'###### checkout failed on {source}')
-			continue
-
-		log.write('###############################################################################')
-		log.write('MERGE')
-		log.write('###############################################################################')
-		print(f'++ merging master into {source}')
-		my_env = os.environ.copy()
-		my_env['GIT_MERGE_AUTOEDIT'] = 'no'
-		res = subprocess.run(['git', 'merge', '-Xtheirs', 'master'], stdout = log, stderr = log, env=my_env)
-		if res.returncode != 0:
-			print(f'###### merge failed on {source}')
-			continue
+			return 0, 0
 
-		log.write('###############################################################################')
-		log.write('BUILD')
-		log.write('###############################################################################')
-		print(f'++ building {source}')
-		res = subprocess.run(['./gradlew', 'assemble'], stdout = log, stderr = log)
-		if res.returncode != 0:
-			print(f'###### build failed on {source}')
-			continue
-		df.loc[position, 'compile'] = 1
+		result = build_and_test(source, '.', log)
 
-		log.write('###############################################################################')
-		log.write('TEST')
-		log.write('###############################################################################')
-		print(f'++ testing {source}')
-		res = subprocess.run(['./gradlew', 'test', '--tests', sys.argv[1]], stdout = log, stderr = log)
-		if res.returncode != 0:
-			print(f'###### test failed on {source}')
-			continue
-		df.loc[position, 'test'] = 1
-
-		log.write('###############################################################################')
-		log.write('COPY')
-		log.write('###############################################################################')
-		outdir = 'outputs/' + sys.argv[2]
-		if os.path.isdir(outdir):
-			print(f'++ copying output files')
-			shutil.copytree('outputs/' + sys.argv[2], logdir + '/' + source)
-		else:
-			print(f'++ no output files to copy')
-
-		log.write('###############################################################################')
-		log.write('RESET')
-		log.write('###############################################################################')
+		section(log, 'RESET')
 		print(f'++ resetting {source}')
 		res = subprocess.run(['git', 'reset', '--hard'], stdout = log, stderr = log)
 		if res.returncode != 0:
 			print(f'###### reset failed on {source}')
-			continue
+			return result
 		res = subprocess.run(['git', 'clean', '-fd'], stdout = log, stderr = log)
 		if res.returncode != 0:
 			print(f'###### clean failed on {source}')
-			continue
+		return result
 
+def evaluate_worktree(source):
+	logfile = logdir + '/' + source + '.log'
+	tree = os.path.join(worktrees, source.replace('/', '_'))
+	with open(logfile, 'w') as log:
+		section(log, 'WORKTREE')
+		print(f'+ creating worktree for branch: {source}')
+		with worktree_lock:
+			res = subprocess.run(['git', 'worktree', 'add', '--force', '--detach', tree, 'origin/' + source], stdout = log, stderr = log)
+		if res.returncode != 0:
+			print(f'###### worktree creation failed on {source}')
+			return 0, 0
+
+		try:
+			return build_and_test(source, tree, log)
+		finally:
+			section(log, 'REMOVE')
+			print(f'++ removing worktree of {source}')
+			with worktree_lock:
+				res = subprocess.run(['git', 'worktree', 'remove', '--force', tree], stdout = log, stderr = log)
+			if res.returncode != 0:
+				print(f'###### worktree removal failed on {source}')
+
+sources = []
+for source in res.stdout.decode().split('\n'):
+	if source == '':
+		continue
+	if source[0] == '\'' and source[-1] == '\'':
+		source = source[1:-1]
+	if source == 'master':
+		continue
+
+	pid = source.split('-')[0]
+	df.loc[len(df.index)] = [source, pid, 0, 0]
+	sources.append(source)
+
+if sys.argv[1] != 'cleanup' and cached:
+	print('+ resolving dependencies and starting the gradle daemon')
+	res = subprocess.run(['./gradlew', '--daemon', 'resolveDependencies'])
+	if res.returncode != 0:
+		print('###### dependency resolution failed')
+		exit()
 
-print('+ checking out master')
-subprocess.run(['git', 'checkout', 'master'])
+if sys.argv[1] == 'cleanup':
+	for source in sources:
+		subprocess.run(['git', 'branch', '-D', source])
+	if os.path.isdir(worktrees):
+		shutil.rmtree(worktrees)
+	subprocess.run(['git', 'worktree', 'prune'])
+	print('+ checking out master')
+	subprocess.run(['git', 'checkout', 'master'])
+elif jobs is None:
+	for position, source in enumerate(sources):
+		df.loc[position, ['compile', 'test']] = evaluate_sequential(source)
+	print('+ checking out master')
+	subprocess.run(['git', 'checkout', 'master'])
+else:
+	print(f'+ evaluating {len(sources)} branches, {jobs} at a time')
+	with ThreadPoolExecutor(max_workers=jobs) as executor:
+		results = list(executor.map(evaluate_worktree, sources))
+	for position, result in enumerate(results):
+		df.loc[position, ['compile', 'test']] = result
+	subprocess.run(['git', 'worktree', 'prune'])
 
 fname = 'report.csv'
 if sys.argv[1] == 'cleanup':